@@ -0,0 +1,94 @@
+package com.codingame.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import com.codingame.view.FrameViewData;
+
+/**
+ * Game states for the benchmarks. They live in the game package to reach the entity store and the phases of the engine.
+ */
+public class BenchmarkGames {
+
+    public static Configuration config(int heroesPerPlayer) {
+        Properties params = new Properties();
+        params.setProperty("HEROES_PER_PLAYER", String.valueOf(heroesPerPlayer));
+        return new Configuration(params, 3);
+    }
+
+    /**
+     * @return a game at the start of its first turn, with the given number of mobs spread over the map and enough mana for the players
+     *         to cast spells
+     */
+    public static GameEngine newGame(int heroesPerPlayer, int mobCount, long seed) {
+        Configuration config = config(heroesPerPlayer);
+        GameEngine engine = new GameEngine(config, seed, 2);
+        Random random = new Random(seed);
+        EntityStore store = engine.getStore();
+        for (int i = 0; i < mobCount; ++i) {
+            int mob = store.addMob(
+                engine.ids.next(),
+                random.nextInt(config.MAP_WIDTH),
+                random.nextInt(config.MAP_HEIGHT),
+                config.MOB_STARTING_MAX_ENERGY + random.nextInt(20)
+            );
+            double angle = random.nextDouble() * Math.PI * 2;
+            store.setSpeed(mob, (int) (Math.cos(angle) * config.MOB_MOVE_SPEED), (int) (Math.sin(angle) * config.MOB_MOVE_SPEED));
+        }
+        for (PlayerState player : engine.getPlayers()) {
+            player.gainMana(1000, 0);
+        }
+        engine.beginTurn();
+        return engine;
+    }
+
+    /**
+     * @return one command per hero of the player: mostly moves towards mobs, and some spells
+     */
+    public static List<String> commands(GameEngine engine, int playerIndex, Random random) {
+        EntityStore store = engine.getStore();
+        Configuration config = engine.getConfiguration();
+        List<String> lines = new ArrayList<>();
+        for (int k = 0; k < config.HEROES_PER_PLAYER; ++k) {
+            int roll = random.nextInt(100);
+            int mob = store.size() > store.getHeroCount() ? store.getHeroCount() + random.nextInt(store.size() - store.getHeroCount()) : -1;
+            if (roll < 60 || mob < 0) {
+                if (mob < 0) {
+                    lines.add("MOVE " + random.nextInt(config.MAP_WIDTH) + " " + random.nextInt(config.MAP_HEIGHT));
+                } else {
+                    lines.add("MOVE " + (int) store.getX(mob) + " " + (int) store.getY(mob) + " hunting");
+                }
+            } else if (roll < 75) {
+                lines.add("SPELL WIND " + random.nextInt(config.MAP_WIDTH) + " " + random.nextInt(config.MAP_HEIGHT));
+            } else if (roll < 85) {
+                lines.add("SPELL SHIELD " + store.getId(mob));
+            } else if (roll < 95) {
+                lines.add("SPELL CONTROL " + store.getId(mob) + " " + random.nextInt(config.MAP_WIDTH) + " " + random.nextInt(config.MAP_HEIGHT));
+            } else {
+                lines.add("WAIT");
+            }
+        }
+        return lines;
+    }
+
+    public static void handleCommands(GameEngine engine, List<String> player0, List<String> player1) {
+        engine.handleCommands(engine.getPlayer(0), player0);
+        engine.handleCommands(engine.getPlayer(1), player1);
+    }
+
+    /**
+     * @return the view frames of the next turns of the game, with a keyframe every <code>keyframeInterval</code> frames
+     */
+    public static List<FrameViewData> frames(GameEngine engine, int turns, int keyframeInterval, Random random) {
+        Referee referee = new Referee();
+        referee.setEngine(engine);
+        List<FrameViewData> frames = new ArrayList<>();
+        for (int i = 0; i < turns && !engine.isOver(); ++i) {
+            engine.step(commands(engine, 0, random), commands(engine, 1, random));
+            frames.add(referee.getCurrentFrameData(i % keyframeInterval == 0));
+        }
+        return frames;
+    }
+}
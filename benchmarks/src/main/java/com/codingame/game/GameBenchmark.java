@@ -0,0 +1,62 @@
+package com.codingame.game;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole games, as played by the tuning runs: the players read their input every turn and answer with the commands of
+ * {@link BenchmarkGames#commands}. The number of mobs follows the spawn rate, the seeds cycle over a fixed set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameBenchmark {
+
+    private static final int SEEDS = 16;
+
+    @Param({ "3", "5" })
+    public int heroesPerPlayer;
+
+    @Param({ "1", "5" })
+    public int mobSpawnRate;
+
+    private Configuration config;
+    private int seed;
+
+    @Setup
+    public void setup() {
+        Properties params = new Properties();
+        params.setProperty("HEROES_PER_PLAYER", String.valueOf(heroesPerPlayer));
+        params.setProperty("MOB_SPAWN_RATE", String.valueOf(mobSpawnRate));
+        config = new Configuration(params, 3);
+    }
+
+    @Benchmark
+    public int fullGame() {
+        GameEngine engine = new GameEngine(config, seed, 2);
+        Random random = new Random(seed);
+        seed = (seed + 1) % SEEDS;
+        while (!engine.isOver()) {
+            engine.getGameStateFor(0);
+            engine.getGameStateFor(1);
+            engine.step(BenchmarkGames.commands(engine, 0, random), BenchmarkGames.commands(engine, 1, random));
+        }
+        return engine.computeScores()[0];
+    }
+}
@@ -0,0 +1,64 @@
+package com.codingame.game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Threat prediction of all the mobs of a turn, as done for the input of the players.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MobStatusBenchmark {
+
+    @Param({ "10", "50", "200" })
+    public int mobCount;
+
+    private GameEngine engine;
+    /** Slot the statuses are predicted into */
+    private int mob;
+    private double[] x, y, vx, vy;
+
+    @Setup
+    public void setup() {
+        engine = BenchmarkGames.newGame(3, 0, 0);
+        Configuration config = engine.getConfiguration();
+        Random random = new Random(0);
+        mob = engine.getStore().addMob(engine.ids.next(), 0, 0, config.MOB_STARTING_MAX_ENERGY);
+        x = new double[mobCount];
+        y = new double[mobCount];
+        vx = new double[mobCount];
+        vy = new double[mobCount];
+        for (int i = 0; i < mobCount; ++i) {
+            x[i] = random.nextInt(config.MAP_WIDTH);
+            y[i] = random.nextInt(config.MAP_HEIGHT);
+            double angle = random.nextDouble() * Math.PI * 2;
+            vx[i] = (int) (Math.cos(angle) * config.MOB_MOVE_SPEED);
+            vy[i] = (int) (Math.sin(angle) * config.MOB_MOVE_SPEED);
+        }
+    }
+
+    @Benchmark
+    public void predictMobStatus(Blackhole blackhole) {
+        for (int i = 0; i < mobCount; ++i) {
+            engine.predictMobStatus(mob, x[i], y[i], vx[i], vy[i]);
+            blackhole.consume(engine.getStore().statusTarget[mob]);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.codingame.game;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Each {@link GamePhase} of the resolution of a turn, from the state left by the previous phases. The state is rebuilt before every
+ * invocation, so the timer overhead weighs on the cheapest phases: compare a phase with itself across changes, not with the others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @Param({ "CONTROL", "SHIELD", "MOVE_HEROES", "COMBAT", "PUSH", "MOVE_MOBS", "SHIELD_DECAY", "SPAWN", "MANA_GAIN" })
+    public GamePhase phase;
+
+    @Param({ "3", "5" })
+    public int heroesPerPlayer;
+
+    @Param({ "10", "50", "200" })
+    public int mobCount;
+
+    private GameEngine engine;
+    private GameSnapshot snapshot;
+    private List<String> commands0, commands1;
+
+    @Setup
+    public void setup() {
+        engine = BenchmarkGames.newGame(heroesPerPlayer, mobCount, 0);
+        snapshot = engine.snapshot();
+        Random random = new Random(0);
+        commands0 = BenchmarkGames.commands(engine, 0, random);
+        commands1 = BenchmarkGames.commands(engine, 1, random);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        engine.restore(snapshot);
+        BenchmarkGames.handleCommands(engine, commands0, commands1);
+        for (GamePhase previous : GamePhase.ALL) {
+            if (previous == phase) {
+                break;
+            }
+            engine.performPhase(previous);
+        }
+    }
+
+    @Benchmark
+    public void performPhase() {
+        engine.performPhase(phase);
+    }
+}
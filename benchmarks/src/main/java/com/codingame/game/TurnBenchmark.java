@@ -0,0 +1,89 @@
+package com.codingame.game;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parts of a turn, each replayed from the same state. Every benchmark but {@link #parse} starts by restoring a snapshot, whose cost is
+ * measured alone by {@link #restore}: subtract it to get the cost of the part.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurnBenchmark {
+
+    @Param({ "3", "5" })
+    public int heroesPerPlayer;
+
+    @Param({ "10", "50", "200" })
+    public int mobCount;
+
+    private GameEngine engine;
+    private GameSnapshot snapshot;
+    private List<String> commands0, commands1;
+    private String[] lines;
+    private CommandParser parser;
+
+    @Setup
+    public void setup() {
+        engine = BenchmarkGames.newGame(heroesPerPlayer, mobCount, 0);
+        snapshot = engine.snapshot();
+        Random random = new Random(0);
+        commands0 = BenchmarkGames.commands(engine, 0, random);
+        commands1 = BenchmarkGames.commands(engine, 1, random);
+        lines = new String[commands0.size() + commands1.size()];
+        for (int i = 0; i < commands0.size(); ++i) {
+            lines[i] = commands0.get(i);
+            lines[commands0.size() + i] = commands1.get(i);
+        }
+        parser = new CommandParser(engine.getConfiguration());
+    }
+
+    @Benchmark
+    public void restore() {
+        engine.restore(snapshot);
+    }
+
+    @Benchmark
+    public void gameState(Blackhole blackhole) {
+        engine.restore(snapshot);
+        blackhole.consume(engine.getGameStateFor(0));
+        blackhole.consume(engine.getGameStateFor(1));
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(parser.parse(line));
+        }
+    }
+
+    @Benchmark
+    public void handleCommands() {
+        engine.restore(snapshot);
+        BenchmarkGames.handleCommands(engine, commands0, commands1);
+    }
+
+    @Benchmark
+    public void turn() {
+        engine.restore(snapshot);
+        engine.step(commands0, commands1);
+    }
+}
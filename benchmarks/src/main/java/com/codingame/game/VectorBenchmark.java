@@ -0,0 +1,77 @@
+package com.codingame.game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link Vector} operations the engine chains when moving entities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private Vector[] positions = new Vector[COUNT];
+    private Vector[] targets = new Vector[COUNT];
+    private Vector origin = new Vector(17630 / 2, 9000 / 2);
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        for (int i = 0; i < COUNT; ++i) {
+            positions[i] = new Vector(random.nextInt(17630), random.nextInt(9000));
+            targets[i] = new Vector(random.nextInt(17630), random.nextInt(9000));
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Vector speedTowards() {
+        int i = next();
+        return new Vector(positions[i], targets[i]).normalize().mult(400).truncate();
+    }
+
+    @Benchmark
+    public Vector rotate() {
+        return targets[next()].rotate(0.7);
+    }
+
+    @Benchmark
+    public Vector symmetricTruncate() {
+        int i = next();
+        return positions[i].add(targets[i].mult(0.01)).symmetricTruncate(origin);
+    }
+
+    @Benchmark
+    public boolean inRange() {
+        int i = next();
+        return positions[i].inRange(targets[i], 5000);
+    }
+
+    @Benchmark
+    public double distance() {
+        int i = next();
+        return positions[i].distance(targets[i]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.codingame.view;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.codingame.game.BenchmarkGames;
+import com.codingame.gameengine.core.AbstractMultiplayerPlayer;
+import com.codingame.gameengine.core.AbstractPlayer;
+import com.codingame.gameengine.core.GameManager;
+import com.codingame.gameengine.core.MultiplayerGameManager;
+
+/**
+ * Binary encoding of the view frames of consecutive turns, keyframes included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+
+    private static final int TURNS = 40;
+
+    @Param({ "3", "5" })
+    public int heroesPerPlayer;
+
+    @Param({ "10", "50", "200" })
+    public int mobCount;
+
+    private ViewModule viewModule;
+    private List<FrameViewData> frames;
+    private int index;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        // Only used to register the module, as Guice would
+        GameManager<?> gameManager = new MultiplayerGameManager<AbstractMultiplayerPlayer>();
+        viewModule = new ViewModule((GameManager<AbstractPlayer>) gameManager);
+        frames = BenchmarkGames.frames(BenchmarkGames.newGame(heroesPerPlayer, mobCount, 0), TURNS, 20, new Random(0));
+    }
+
+    @Benchmark
+    public String serialize() {
+        index = (index + 1) % frames.size();
+        return viewModule.serialize(frames.get(index));
+    }
+}
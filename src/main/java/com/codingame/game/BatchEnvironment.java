@@ -0,0 +1,297 @@
+package com.codingame.game;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.codingame.game.action.ActionType;
+
+/**
+ * Independent games stepped in lockstep, for training policies: one call to {@link #step(int[])} plays a turn of every game from an
+ * array of actions, and writes observations, rewards and done flags into buffers allocated once. Games that end are replaced by a new
+ * game on the next seed in the same call, so the observation of a done game is the first one of its successor.
+ * <p>
+ * Actions are {@value #ACTION_SIZE} ints per hero: {@link #ACTION_TYPE}, {@link #ACTION_X}, {@link #ACTION_Y} and
+ * {@link #ACTION_TARGET}, for every hero of player 0 then player 1 of each game. They follow the rules of the commands: a spell that
+ * is not enabled in the league deactivates the player, and heroes under CONTROL spells ignore theirs.
+ * <p>
+ * Observations are written by an {@link ObservationEncoder}, {@link #getObservationSize()} floats per player of each game, with what
+ * the player sees through the fog. {@link #getEntityIds()} gives the id of the entity of each slot, to target it with a spell.
+ * <p>
+ * Coordinates are seen from the side of each player: for player 1, positions in observations and actions are mirrored through the
+ * center of the map, so that one policy can play both sides. The reward of a player is the change of the difference between its base
+ * health and its opponent's, plus that of the mana gained outside of the bases, each with its weight.
+ */
+public class BatchEnvironment {
+
+    public static final int PLAYER_COUNT = 2;
+
+    public static final int ACTION_SIZE = 4;
+    public static final int ACTION_TYPE = 0;
+    public static final int ACTION_X = 1;
+    public static final int ACTION_Y = 2;
+    /** Id of the entity targeted by SHIELD and CONTROL */
+    public static final int ACTION_TARGET = 3;
+
+    public static final int WAIT = 0;
+    public static final int MOVE = 1;
+    public static final int WIND = 2;
+    public static final int SHIELD = 3;
+    public static final int CONTROL = 4;
+    private static final ActionType[] ACTION_TYPES = { ActionType.IDLE, ActionType.MOVE, ActionType.WIND, ActionType.SHIELD,
+        ActionType.CONTROL };
+
+    private final Configuration config;
+    private final int envCount;
+    private final int heroesPerPlayer;
+    private final int entitySlots;
+    private final int observationSize;
+    private final ObservationEncoder encoder;
+    private final GameEngine[] engines;
+    private long nextSeed;
+    private float baseHealthWeight = 1;
+    private float manaWeight = 0.01f;
+    private ForkJoinPool pool;
+
+    private final float[] observations;
+    private final int[] entityIds;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final int[] winners;
+    /** Base health minus the opponent's, and the same for the mana gained outside of the base, before the step */
+    private final int[] healthLead;
+    private final int[] manaLead;
+    /** Actions of player 1 mirrored back to the map */
+    private final int[] mirroredActions;
+
+    /**
+     * @param entitySlots
+     *            number of entities in each observation, heroes included, without spatial planes
+     */
+    public BatchEnvironment(Configuration config, int envCount, int entitySlots, long firstSeed) {
+        this(config, envCount, new ObservationEncoder(config, entitySlots, 0, 0), firstSeed);
+    }
+
+    public BatchEnvironment(Configuration config, int envCount, ObservationEncoder encoder, long firstSeed) {
+        this.config = config;
+        this.envCount = envCount;
+        this.heroesPerPlayer = config.HEROES_PER_PLAYER;
+        this.encoder = encoder;
+        this.entitySlots = encoder.getEntitySlots();
+        this.observationSize = encoder.getSize();
+        this.nextSeed = firstSeed;
+        engines = new GameEngine[envCount];
+        observations = new float[envCount * PLAYER_COUNT * observationSize];
+        entityIds = new int[envCount * PLAYER_COUNT * entitySlots];
+        rewards = new float[envCount * PLAYER_COUNT];
+        dones = new boolean[envCount];
+        winners = new int[envCount];
+        healthLead = new int[envCount * PLAYER_COUNT];
+        manaLead = new int[envCount * PLAYER_COUNT];
+        mirroredActions = new int[getActionsLength()];
+        reset();
+    }
+
+    static ActionType getActionType(int action) {
+        return action >= 0 && action < ACTION_TYPES.length ? ACTION_TYPES[action] : null;
+    }
+
+    public void setRewardWeights(float baseHealthWeight, float manaWeight) {
+        this.baseHealthWeight = baseHealthWeight;
+        this.manaWeight = manaWeight;
+    }
+
+    /**
+     * @param parallelism
+     *            number of threads stepping the games, 1 to step them on the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public int getEnvCount() {
+        return envCount;
+    }
+
+    public int getHeroesPerPlayer() {
+        return heroesPerPlayer;
+    }
+
+    /**
+     * @return the length of the action array of {@link #step(int[])}
+     */
+    public int getActionsLength() {
+        return envCount * PLAYER_COUNT * heroesPerPlayer * ACTION_SIZE;
+    }
+
+    /**
+     * @return the number of floats of the observation of a player
+     */
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    /**
+     * @return the observations of player 0 then player 1 of each game, updated in place by every step
+     */
+    public float[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * @return the id of the entity in each slot of the observations, or -1
+     */
+    public int[] getEntityIds() {
+        return entityIds;
+    }
+
+    /**
+     * @return the reward of each player of each game for the last step
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * @return whether each game ended with the last step, in which case it has been replaced by a new game
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * @return for each game that ended with the last step, the index of its winner or -1 for a draw
+     */
+    public int[] getWinners() {
+        return winners;
+    }
+
+    public GameEngine getEngine(int env) {
+        return engines[env];
+    }
+
+    /**
+     * Starts a new game in every environment.
+     */
+    public void reset() {
+        for (int env = 0; env < envCount; ++env) {
+            startGame(env);
+        }
+        Arrays.fill(rewards, 0);
+        Arrays.fill(dones, false);
+        Arrays.fill(winners, -1);
+    }
+
+    private void startGame(int env) {
+        if (engines[env] == null) {
+            engines[env] = new GameEngine(config, nextSeed++, PLAYER_COUNT);
+        } else {
+            engines[env].reset(nextSeed++);
+        }
+        saveLeads(env);
+        encode(env);
+    }
+
+    /**
+     * Plays a turn of every game.
+     *
+     * @param actions
+     *            {@link #getActionsLength()} ints, see {@link BatchEnvironment}
+     */
+    public void step(int[] actions) {
+        if (actions.length < getActionsLength()) {
+            throw new IllegalArgumentException("Expected " + getActionsLength() + " actions, got " + actions.length);
+        }
+        if (pool == null) {
+            for (int env = 0; env < envCount; ++env) {
+                step(env, actions);
+            }
+        } else {
+            try {
+                pool.submit(() -> IntStream.range(0, envCount).parallel().forEach(env -> step(env, actions))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        // In order, so that the seeds of the new games do not depend on the threads
+        for (int env = 0; env < envCount; ++env) {
+            if (dones[env]) {
+                startGame(env);
+            }
+        }
+    }
+
+    private void step(int env, int[] actions) {
+        GameEngine engine = engines[env];
+        engine.beginTurn();
+        for (int player = 0; player < PLAYER_COUNT; ++player) {
+            PlayerState state = engine.getPlayer(player);
+            if (state.isActive()) {
+                int offset = (env * PLAYER_COUNT + player) * heroesPerPlayer * ACTION_SIZE;
+                if (player == 1) {
+                    mirrorActions(actions, offset);
+                    engine.handleActions(state, mirroredActions, offset);
+                } else {
+                    engine.handleActions(state, actions, offset);
+                }
+            }
+        }
+        engine.endTurn();
+
+        int previousHealthLead = healthLead[env * PLAYER_COUNT];
+        int previousManaLead = manaLead[env * PLAYER_COUNT];
+        saveLeads(env);
+        float reward = baseHealthWeight * (healthLead[env * PLAYER_COUNT] - previousHealthLead)
+            + manaWeight * (manaLead[env * PLAYER_COUNT] - previousManaLead);
+        rewards[env * PLAYER_COUNT] = reward;
+        rewards[env * PLAYER_COUNT + 1] = -reward;
+
+        dones[env] = engine.isOver();
+        if (dones[env]) {
+            int[] scores = engine.computeScores();
+            winners[env] = scores[0] == scores[1] ? -1 : scores[0] > scores[1] ? 0 : 1;
+        } else {
+            winners[env] = -1;
+            encode(env);
+        }
+    }
+
+    /**
+     * Copies the actions of player 1, with their coordinates mirrored from its side to the map. Entity ids are not coordinates.
+     */
+    private void mirrorActions(int[] actions, int offset) {
+        for (int i = offset; i < offset + heroesPerPlayer * ACTION_SIZE; i += ACTION_SIZE) {
+            mirroredActions[i + ACTION_TYPE] = actions[i + ACTION_TYPE];
+            mirroredActions[i + ACTION_X] = config.MAP_WIDTH - actions[i + ACTION_X];
+            mirroredActions[i + ACTION_Y] = config.MAP_HEIGHT - actions[i + ACTION_Y];
+            mirroredActions[i + ACTION_TARGET] = actions[i + ACTION_TARGET];
+        }
+    }
+
+    private void saveLeads(int env) {
+        PlayerState a = engines[env].getPlayer(0);
+        PlayerState b = engines[env].getPlayer(1);
+        healthLead[env * PLAYER_COUNT] = a.getBaseHealth() - b.getBaseHealth();
+        healthLead[env * PLAYER_COUNT + 1] = -healthLead[env * PLAYER_COUNT];
+        manaLead[env * PLAYER_COUNT] = a.getManaGainedOutsideOfBase() - b.getManaGainedOutsideOfBase();
+        manaLead[env * PLAYER_COUNT + 1] = -manaLead[env * PLAYER_COUNT];
+    }
+
+    /**
+     * Begins the next turn of a game, as reading its state does, and encodes it for both players.
+     */
+    private void encode(int env) {
+        engines[env].beginTurn();
+        for (int player = 0; player < PLAYER_COUNT; ++player) {
+            int index = env * PLAYER_COUNT + player;
+            encoder.encode(engines[env], player, observations, index * observationSize, entityIds, index * entitySlots);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.codingame.game;
+
+import com.codingame.game.action.ActionType;
+
+/**
+ * Single-pass parser for the output lines of heroes, without allocations other than the message. It accepts exactly what these
+ * regular expressions did:
+ *
+ * <pre>
+ * WAIT(?:\s+(?&lt;message&gt;.+))?\s*
+ * MOVE\s+(?&lt;x&gt;-?\d+)\s+(?&lt;y&gt;-?\d+)(?:\s+(?&lt;message&gt;.+))?\s*
+ * SPELL\s+WIND\s+(?&lt;x&gt;-?\d+)\s+(?&lt;y&gt;-?\d+)(?:\s+(?&lt;message&gt;.+))?\s*
+ * SPELL\s+SHIELD\s+(?&lt;id&gt;-?\d+)(?:\s+(?&lt;message&gt;.+))?\s*
+ * SPELL\s+CONTROL\s+(?&lt;id&gt;-?\d+)\s+(?&lt;x&gt;-?\d+)\s+(?&lt;y&gt;-?\d+)(?:\s+(?&lt;message&gt;.+))?\s*
+ * </pre>
+ *
+ * Spells are only recognized when enabled in the league.
+ */
+class CommandParser {
+
+    private final boolean windEnabled;
+    private final boolean shieldEnabled;
+    private final boolean controlEnabled;
+
+    private String line;
+
+    /** Fields of the last parsed line, when present */
+    int id, x, y;
+    String message;
+
+    CommandParser(Configuration config) {
+        windEnabled = config.ENABLE_WIND;
+        shieldEnabled = config.ENABLE_SHIELD;
+        controlEnabled = config.ENABLE_CONTROL;
+    }
+
+    /**
+     * @return the type of command on the line, {@link ActionType#IDLE} for WAIT, or <code>null</code> if the line is invalid
+     * @throws NumberFormatException
+     *             if a number of a valid line does not fit in an int, as <code>Integer.valueOf</code> would
+     */
+    ActionType parse(String line) {
+        this.line = line;
+        message = null;
+
+        if (line.startsWith("WAIT")) {
+            return tail(4) ? ActionType.IDLE : null;
+        }
+        if (line.startsWith("MOVE")) {
+            return coordinates(spaces(4)) ? ActionType.MOVE : null;
+        }
+        if (!line.startsWith("SPELL")) {
+            return null;
+        }
+        int i = spaces(5);
+        if (i < 0) {
+            return null;
+        }
+        if (windEnabled && line.startsWith("WIND", i)) {
+            return coordinates(spaces(i + 4)) ? ActionType.WIND : null;
+        }
+        if (shieldEnabled && line.startsWith("SHIELD", i)) {
+            int idStart = spaces(i + 6);
+            int idEnd = number(idStart);
+            if (idEnd < 0 || !tail(idEnd)) {
+                return null;
+            }
+            id = toInt(idStart, idEnd);
+            return ActionType.SHIELD;
+        }
+        if (controlEnabled && line.startsWith("CONTROL", i)) {
+            int idStart = spaces(i + 7);
+            int idEnd = number(idStart);
+            int xStart = spaces(idEnd);
+            int xEnd = number(xStart);
+            int yStart = spaces(xEnd);
+            int yEnd = number(yStart);
+            if (yEnd < 0 || !tail(yEnd)) {
+                return null;
+            }
+            id = toInt(idStart, idEnd);
+            x = toInt(xStart, xEnd);
+            y = toInt(yStart, yEnd);
+            return ActionType.CONTROL;
+        }
+        return null;
+    }
+
+    /**
+     * Parses <code>x y [message]</code> from <code>i</code>.
+     */
+    private boolean coordinates(int i) {
+        int xEnd = number(i);
+        int yStart = spaces(xEnd);
+        int yEnd = number(yStart);
+        if (yEnd < 0 || !tail(yEnd)) {
+            return false;
+        }
+        x = toInt(i, xEnd);
+        y = toInt(yStart, yEnd);
+        return true;
+    }
+
+    /**
+     * @return the index after one or more whitespace characters at <code>i</code>, or -1
+     */
+    private int spaces(int i) {
+        if (i < 0 || i >= line.length() || !isSpace(line.charAt(i))) {
+            return -1;
+        }
+        do {
+            i++;
+        } while (i < line.length() && isSpace(line.charAt(i)));
+        return i;
+    }
+
+    /**
+     * @return the index after an optionally negative integer at <code>i</code>, or -1
+     */
+    private int number(int i) {
+        if (i < 0) {
+            return -1;
+        }
+        if (i < line.length() && line.charAt(i) == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < line.length() && isDigit(line.charAt(i))) {
+            i++;
+        }
+        return i > digits ? i : -1;
+    }
+
+    /**
+     * Parses the end of a line from <code>start</code>: nothing but whitespace, or whitespace followed by a message. Mimics the
+     * backtracking of <code>(?:\s+(?&lt;message&gt;.+))?\s*$</code>: the separator is taken as long as a non-empty message of characters
+     * other than line terminators can follow it and reach the trailing whitespace. So <code>"WAIT  "</code> has a one space message,
+     * while <code>"WAIT "</code> has none.
+     */
+    private boolean tail(int start) {
+        int length = line.length();
+        int trailing = length;
+        while (trailing > start && isSpace(line.charAt(trailing - 1))) {
+            trailing--;
+        }
+        int separator = 0;
+        while (start + separator < length && isSpace(line.charAt(start + separator))) {
+            separator++;
+        }
+        for (; separator >= 1; --separator) {
+            int from = start + separator;
+            int to = from;
+            while (to < length && !isLineTerminator(line.charAt(to))) {
+                to++;
+            }
+            if (to > from && to >= trailing) {
+                message = line.substring(from, to);
+                return true;
+            }
+        }
+        return trailing == start;
+    }
+
+    /**
+     * Converts a token matched by {@link #number(int)}.
+     */
+    private int toInt(int start, int end) {
+        boolean negative = line.charAt(start) == '-';
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; ++i) {
+            value = value * 10 + (line.charAt(i) - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                break;
+            }
+        }
+        if (value > (negative ? (long) Integer.MAX_VALUE + 1 : Integer.MAX_VALUE)) {
+            // Throws the same exception as before
+            return Integer.valueOf(line.substring(start, end));
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Removes emojis and other symbols from a message: keeps letters, marks, numbers, punctuation, separators, format characters,
+     * unpaired surrogates and whitespace.
+     *
+     * @return the message itself if nothing is removed
+     */
+    static String filterMessage(String message) {
+        int i = 0;
+        while (i < message.length() && isPrintable(message.codePointAt(i))) {
+            i += Character.charCount(message.codePointAt(i));
+        }
+        if (i == message.length()) {
+            return message;
+        }
+        StringBuilder filtered = new StringBuilder(message.length()).append(message, 0, i);
+        while (i < message.length()) {
+            int codePoint = message.codePointAt(i);
+            if (isPrintable(codePoint)) {
+                filtered.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return filtered.toString();
+    }
+
+    private static boolean isPrintable(int codePoint) {
+        if (codePoint < 0x80 && isSpace((char) codePoint)) {
+            return true;
+        }
+        switch (Character.getType(codePoint)) {
+        case Character.UPPERCASE_LETTER:
+        case Character.LOWERCASE_LETTER:
+        case Character.TITLECASE_LETTER:
+        case Character.MODIFIER_LETTER:
+        case Character.OTHER_LETTER:
+        case Character.NON_SPACING_MARK:
+        case Character.ENCLOSING_MARK:
+        case Character.COMBINING_SPACING_MARK:
+        case Character.DECIMAL_DIGIT_NUMBER:
+        case Character.LETTER_NUMBER:
+        case Character.OTHER_NUMBER:
+        case Character.CONNECTOR_PUNCTUATION:
+        case Character.DASH_PUNCTUATION:
+        case Character.START_PUNCTUATION:
+        case Character.END_PUNCTUATION:
+        case Character.INITIAL_QUOTE_PUNCTUATION:
+        case Character.FINAL_QUOTE_PUNCTUATION:
+        case Character.OTHER_PUNCTUATION:
+        case Character.SPACE_SEPARATOR:
+        case Character.LINE_SEPARATOR:
+        case Character.PARAGRAPH_SEPARATOR:
+        case Character.FORMAT:
+        case Character.SURROGATE:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
@@ -2,47 +2,120 @@ package com.codingame.game;
 
 import java.util.Properties;
 
+/**
+ * Rule parameters of a single game. Instances are immutable, so several games with different leagues or parameters can run concurrently.
+ */
 public class Configuration {
 
-    public static int MAP_WIDTH = 17630;
-    public static int MAP_HEIGHT = 9000;
-    public static int MAP_LIMIT = 800;
-
-    public static int BASE_ATTRACTION_RADIUS = 5000;
-    public static int BASE_VIEW_RADIUS = 6000;
-    public static int BASE_RADIUS = 300;
-
-    public static int HERO_MOVE_SPEED = 800;
-    public static int HEROES_PER_PLAYER = 3;
-    public static int HERO_VIEW_RADIUS = 2200;
-    public static int HERO_ATTACK_RANGE = 800;
-    public static int HERO_ATTACK_DAMAGE = 2;
-
-    public static int MAX_MANA = -1;
-    public static int STARTING_MANA = 0;
-    public static int STARTING_BASE_HEALTH = 3;
-
-    public static int MOB_MOVE_SPEED = 400;
-    public static final SpawnLocation[] MOB_SPAWN_LOCATIONS = new SpawnLocation[] {
-        new SpawnLocation(MAP_WIDTH / 2, -MAP_LIMIT + 1),
-        new SpawnLocation(MAP_WIDTH / 2 + 4000, -MAP_LIMIT + 1),
-    };
     public static final double MOB_SPAWN_MAX_DIRECTION_DELTA = 5 * Math.PI / 12;
-    public static int MOB_SPAWN_RATE = 5;
-    public static int MOB_STARTING_MAX_ENERGY = 10;
-    public static double MOB_GROWTH_MAX_ENERGY = 0.5;
-
-    public static int SPELL_WIND_COST = 10;
-    public static int SPELL_CONTROL_COST = 10;
-    public static int SPELL_PROTECT_COST = 10;
-    public static int SPELL_PROTECT_DURATION = 12;
-    public static int SPELL_WIND_DISTANCE = 2200;
-    public static int SPELL_WIND_RADIUS = 1280;
-    public static boolean ENABLE_FOG = true;
-    public static boolean ENABLE_WIND = true;
-    public static boolean ENABLE_CONTROL = true;
-    public static boolean ENABLE_SHIELD = true;
-    public static boolean ENABLE_TIE_BREAK = true;
+
+    public final int MAP_WIDTH;
+    public final int MAP_HEIGHT;
+    public final int MAP_LIMIT = 800;
+
+    public final int BASE_ATTRACTION_RADIUS;
+    public final int BASE_VIEW_RADIUS;
+    public final int BASE_RADIUS;
+
+    public final int HERO_MOVE_SPEED;
+    public final int HEROES_PER_PLAYER;
+    public final int HERO_VIEW_RADIUS;
+    public final int HERO_ATTACK_RANGE;
+    public final int HERO_ATTACK_DAMAGE;
+
+    public final int MAX_MANA;
+    public final int STARTING_MANA;
+    public final int STARTING_BASE_HEALTH;
+
+    public final int MOB_MOVE_SPEED;
+    /** Derived from the map size, like the base positions and the symmetry of the map */
+    public final SpawnLocation[] MOB_SPAWN_LOCATIONS;
+    public final int MOB_SPAWN_RATE;
+    public final int MOB_STARTING_MAX_ENERGY;
+    public final double MOB_GROWTH_MAX_ENERGY;
+
+    public final int SPELL_WIND_COST;
+    public final int SPELL_CONTROL_COST;
+    public final int SPELL_PROTECT_COST;
+    public final int SPELL_PROTECT_DURATION;
+    public final int SPELL_WIND_DISTANCE;
+    public final int SPELL_WIND_RADIUS;
+    public final boolean ENABLE_FOG;
+    public final boolean ENABLE_WIND;
+    public final boolean ENABLE_CONTROL;
+    public final boolean ENABLE_SHIELD;
+    public final boolean ENABLE_TIE_BREAK;
+
+    /** Frames between two keyframes of the replay, which the viewer can decode without the frames before them */
+    public final int KEYFRAME_INTERVAL;
+
+    /**
+     * Default rules, as in the last league.
+     */
+    public Configuration() {
+        this(new Properties(), 3);
+    }
+
+    public Configuration(Properties params, int leagueLevel) {
+        boolean enableFog = true;
+        boolean enableWind = true;
+        boolean enableControl = true;
+        boolean enableShield = true;
+        boolean enableTieBreak = true;
+
+        switch (leagueLevel) {
+        case 1:
+            // Wood 2
+            enableTieBreak = false;
+            enableWind = false;
+            enableControl = false;
+            enableShield = false;
+            enableFog = false;
+            break;
+        case 2:
+            // Wood 1
+            enableWind = true;
+            enableControl = false;
+            enableShield = false;
+            enableFog = true;
+            break;
+        }
+        ENABLE_FOG = enableFog;
+        ENABLE_WIND = enableWind;
+        ENABLE_CONTROL = enableControl;
+        ENABLE_SHIELD = enableShield;
+        ENABLE_TIE_BREAK = enableTieBreak;
+
+        SPELL_CONTROL_COST = getFromParams(params, "SPELL_CONTROL_COST", 10);
+        SPELL_PROTECT_COST = getFromParams(params, "SPELL_PROTECT_COST", 10);
+        SPELL_WIND_COST = getFromParams(params, "SPELL_PUSH_COST", 10);
+        SPELL_WIND_DISTANCE = getFromParams(params, "SPELL_PUSH_DISTANCE", 2200);
+        SPELL_WIND_RADIUS = getFromParams(params, "SPELL_PUSH_RADIUS", 1280);
+        SPELL_PROTECT_DURATION = getFromParams(params, "SPELL_PROTECT_DURATION", 12);
+        MAP_WIDTH = getFromParams(params, "MAP_WIDTH", 17630);
+        MAP_HEIGHT = getFromParams(params, "MAP_HEIGHT", 9000);
+        BASE_ATTRACTION_RADIUS = getFromParams(params, "BASE_ATTRACTION_RADIUS", 5000);
+        BASE_VIEW_RADIUS = getFromParams(params, "BASE_VIEW_RADIUS", 6000);
+        BASE_RADIUS = getFromParams(params, "BASE_RADIUS", 300);
+        HERO_MOVE_SPEED = getFromParams(params, "HERO_MOVE_SPEED", 800);
+        HEROES_PER_PLAYER = getFromParams(params, "HEROES_PER_PLAYER", 3);
+        HERO_VIEW_RADIUS = getFromParams(params, "HERO_VIEW_RADIUS", 2200);
+        HERO_ATTACK_RANGE = getFromParams(params, "HERO_ATTACK_RANGE", 800);
+        HERO_ATTACK_DAMAGE = getFromParams(params, "HERO_ATTACK_DAMAGE", 2);
+        MAX_MANA = getFromParams(params, "MAX_MANA", -1);
+        STARTING_MANA = getFromParams(params, "STARTING_MANA", 0);
+        STARTING_BASE_HEALTH = getFromParams(params, "STARTING_BASE_HEALTH", 3);
+        MOB_MOVE_SPEED = getFromParams(params, "MOB_MOVE_SPEED", 400);
+        MOB_SPAWN_RATE = getFromParams(params, "MOB_SPAWN_RATE", 5);
+        MOB_STARTING_MAX_ENERGY = getFromParams(params, "MOB_STARTING_MAX_ENERGY", 10);
+        MOB_GROWTH_MAX_ENERGY = getFromParams(params, "MOB_GROWTH_MAX_ENERGY", 0.5);
+        KEYFRAME_INTERVAL = Math.max(1, getFromParams(params, "KEYFRAME_INTERVAL", 20));
+
+        MOB_SPAWN_LOCATIONS = new SpawnLocation[] {
+            new SpawnLocation(this, MAP_WIDTH / 2, -MAP_LIMIT + 1),
+            new SpawnLocation(this, MAP_WIDTH / 2 + 4000, -MAP_LIMIT + 1),
+        };
+    }
 
     private static int getFromParams(Properties params, String name, int defaultValue) {
         String inputValue = params.getProperty(name);
@@ -68,29 +141,7 @@ public class Configuration {
         return defaultValue;
     }
 
-    public static void take(Properties params) {
-        SPELL_CONTROL_COST = getFromParams(params, "SPELL_CONTROL_COST", SPELL_CONTROL_COST);
-        SPELL_PROTECT_COST = getFromParams(params, "SPELL_PROTECT_COST", SPELL_PROTECT_COST);
-        SPELL_WIND_COST = getFromParams(params, "SPELL_PUSH_COST", SPELL_WIND_COST);
-        SPELL_WIND_DISTANCE = getFromParams(params, "SPELL_PUSH_DISTANCE", SPELL_WIND_DISTANCE);
-        SPELL_WIND_RADIUS = getFromParams(params, "SPELL_PUSH_RADIUS", SPELL_WIND_RADIUS);
-        SPELL_PROTECT_DURATION = getFromParams(params, "SPELL_PROTECT_DURATION", SPELL_PROTECT_DURATION);
-        MAP_WIDTH = getFromParams(params, "MAP_WIDTH", MAP_WIDTH);
-        MAP_HEIGHT = getFromParams(params, "MAP_HEIGHT", MAP_HEIGHT);
-        BASE_ATTRACTION_RADIUS = getFromParams(params, "BASE_ATTRACTION_RADIUS", BASE_ATTRACTION_RADIUS);
-        BASE_VIEW_RADIUS = getFromParams(params, "BASE_VIEW_RADIUS", BASE_VIEW_RADIUS);
-        BASE_RADIUS = getFromParams(params, "BASE_RADIUS", BASE_RADIUS);
-        HERO_MOVE_SPEED = getFromParams(params, "HERO_MOVE_SPEED", HERO_MOVE_SPEED);
-        HEROES_PER_PLAYER = getFromParams(params, "HEROES_PER_PLAYER", HEROES_PER_PLAYER);
-        HERO_VIEW_RADIUS = getFromParams(params, "HERO_VIEW_RADIUS", HERO_VIEW_RADIUS);
-        HERO_ATTACK_RANGE = getFromParams(params, "HERO_ATTACK_RANGE", HERO_ATTACK_RANGE);
-        HERO_ATTACK_DAMAGE = getFromParams(params, "HERO_ATTACK_DAMAGE", HERO_ATTACK_DAMAGE);
-        MAX_MANA = getFromParams(params, "MAX_MANA", MAX_MANA);
-        STARTING_MANA = getFromParams(params, "STARTING_MANA", STARTING_MANA);
-        STARTING_BASE_HEALTH = getFromParams(params, "STARTING_BASE_HEALTH", STARTING_BASE_HEALTH);
-        MOB_MOVE_SPEED = getFromParams(params, "MOB_MOVE_SPEED", MOB_MOVE_SPEED);
-        MOB_SPAWN_RATE = getFromParams(params, "MOB_SPAWN_RATE", MOB_SPAWN_RATE);
-        MOB_STARTING_MAX_ENERGY = getFromParams(params, "MOB_STARTING_MAX_ENERGY", MOB_STARTING_MAX_ENERGY);
-        MOB_GROWTH_MAX_ENERGY = getFromParams(params, "MOB_GROWTH_MAX_ENERGY", MOB_GROWTH_MAX_ENERGY);
+    public boolean spellsEnabled() {
+        return ENABLE_CONTROL || ENABLE_WIND || ENABLE_SHIELD;
     }
 }
@@ -0,0 +1,23 @@
+package com.codingame.game;
+
+/**
+ * Hands out entity ids for a single game. Ids are dense and start at 0, so they can index arrays.
+ */
+public class EntityIdAllocator {
+    private int count = 0;
+
+    public int next() {
+        return count++;
+    }
+
+    /**
+     * @return the number of ids allocated so far, which is also the next id
+     */
+    public int count() {
+        return count;
+    }
+
+    void reset(int count) {
+        this.count = count;
+    }
+}
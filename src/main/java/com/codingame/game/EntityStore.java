@@ -0,0 +1,349 @@
+package com.codingame.game;
+
+import java.util.Arrays;
+
+/**
+ * Heroes and mobs of a game, stored as parallel arrays indexed by slot. Heroes occupy the first slots, followed by mobs in spawn order.
+ * Removed mobs keep their slot until {@link #compact()} is called at the start of the next turn.
+ */
+public class EntityStore {
+
+    static final int PUSHED = 1;
+    static final int HEALTH_CHANGED = 2;
+    static final int REMOVED = 4;
+    static final int NEW = 8;
+
+    int size;
+    int heroCount;
+    final int maxControls;
+
+    int[] id;
+    /** Index of the owning player, or -1 for a mob */
+    int[] owner;
+    double[] x, y;
+    double[] vx, vy;
+    int[] health;
+    int[] shieldDuration;
+    int[] flags;
+    /**
+     * Fate of each mob predicted by {@link GameEngine#predictMobStatus(int, double, double, double, double)}, valid while
+     * <code>statusKnown</code> is set, which it is not once the course of the mob changes
+     */
+    boolean[] statusKnown;
+    /** {@link GameEngine#WANDERING} or {@link GameEngine#ATTACKING} */
+    int[] statusState;
+    /** Index of the player whose base the mob heads for, or -1 */
+    int[] statusTarget;
+    /** Turns until the mob gets there or leaves the map, 0 if never */
+    int[] statusTurns;
+
+    /** Destinations of the CONTROL spells acting on each entity this turn, <code>maxControls</code> per slot */
+    int[] controlCount;
+    double[] controlX, controlY;
+    /** CONTROL spells cast on mobs this turn, which act on the next one */
+    int[] nextControlCount;
+    double[] nextControlX, nextControlY;
+
+    /** Slot of each entity id, or -1 once the entity has left the store. Ids are dense, see {@link EntityIdAllocator}. */
+    private int[] slotById;
+
+    /** Where to save entities before they are modified, while a mark is open, see {@link GameEngine#mark()} */
+    UndoJournal journal;
+
+    public EntityStore(int capacity, int maxControls) {
+        this.maxControls = maxControls;
+        id = new int[capacity];
+        owner = new int[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        health = new int[capacity];
+        shieldDuration = new int[capacity];
+        flags = new int[capacity];
+        statusKnown = new boolean[capacity];
+        statusState = new int[capacity];
+        statusTarget = new int[capacity];
+        statusTurns = new int[capacity];
+        controlCount = new int[capacity];
+        controlX = new double[capacity * maxControls];
+        controlY = new double[capacity * maxControls];
+        nextControlCount = new int[capacity];
+        nextControlX = new double[capacity * maxControls];
+        nextControlY = new double[capacity * maxControls];
+        slotById = new int[capacity];
+        Arrays.fill(slotById, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getHeroCount() {
+        return heroCount;
+    }
+
+    public int getId(int slot) {
+        return id[slot];
+    }
+
+    public double getX(int slot) {
+        return x[slot];
+    }
+
+    public double getY(int slot) {
+        return y[slot];
+    }
+
+    public int getHealth(int slot) {
+        return health[slot];
+    }
+
+    /**
+     * @return the slot of the entity with the given id, or -1 if there is no such entity or it has been removed
+     */
+    public int slotOf(int id) {
+        if (id < 0 || id >= slotById.length) {
+            return -1;
+        }
+        int slot = slotById[id];
+        if (slot < 0 || hasFlag(slot, REMOVED)) {
+            return -1;
+        }
+        return slot;
+    }
+
+    public boolean isMob(int slot) {
+        return owner[slot] < 0;
+    }
+
+    int getType(int slot) {
+        return isMob(slot) ? GameEngine.TYPE_MOB : owner[slot];
+    }
+
+    int addHero(int id, int owner, double x, double y) {
+        if (size != heroCount) {
+            throw new IllegalStateException("Heroes must be added before mobs");
+        }
+        int slot = add(id, owner, x, y);
+        heroCount++;
+        return slot;
+    }
+
+    int addMob(int id, double x, double y, int health) {
+        int slot = add(id, -1, x, y);
+        this.health[slot] = health;
+        flags[slot] |= HEALTH_CHANGED;
+        return slot;
+    }
+
+    private int add(int id, int owner, double x, double y) {
+        if (size == this.id.length) {
+            grow();
+        }
+        touch(size);
+        int slot = size++;
+        if (id >= slotById.length) {
+            int length = slotById.length;
+            slotById = Arrays.copyOf(slotById, Math.max(length * 2, id + 1));
+            Arrays.fill(slotById, length, slotById.length, -1);
+        }
+        setSlotOf(id, slot);
+        this.id[slot] = id;
+        this.owner[slot] = owner;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        vx[slot] = 0;
+        vy[slot] = 0;
+        health[slot] = 0;
+        shieldDuration[slot] = 0;
+        flags[slot] = NEW;
+        statusKnown[slot] = false;
+        controlCount[slot] = 0;
+        nextControlCount[slot] = 0;
+        return slot;
+    }
+
+    /**
+     * Must be called before modifying an entity directly in the arrays, so that the change can be undone.
+     */
+    void touch(int slot) {
+        if (journal != null) {
+            journal.saveRow(this, slot);
+        }
+    }
+
+    private void setSlotOf(int id, int slot) {
+        if (journal != null) {
+            journal.saveSlotOf(id, slotById[id]);
+        }
+        slotById[id] = slot;
+    }
+
+    /**
+     * Sets the slot of an entity id back, without recording it.
+     */
+    void restoreSlotOf(int id, int slot) {
+        slotById[id] = slot;
+    }
+
+    boolean hasFlag(int slot, int flag) {
+        return (flags[slot] & flag) != 0;
+    }
+
+    void setSpeed(int slot, double vx, double vy) {
+        touch(slot);
+        this.vx[slot] = vx;
+        this.vy[slot] = vy;
+        statusKnown[slot] = false;
+    }
+
+    boolean isControlled(int slot) {
+        return controlCount[slot] > 0;
+    }
+
+    void addControl(int slot, double destX, double destY) {
+        if (controlCount[slot] == maxControls) {
+            // Only when a hero's commands are not handled for several turns, which ends the game
+            return;
+        }
+        touch(slot);
+        int k = slot * maxControls + controlCount[slot]++;
+        controlX[k] = destX;
+        controlY[k] = destY;
+    }
+
+    void addNextControl(int slot, double destX, double destY) {
+        if (nextControlCount[slot] == maxControls) {
+            return;
+        }
+        touch(slot);
+        int k = slot * maxControls + nextControlCount[slot]++;
+        nextControlX[k] = destX;
+        nextControlY[k] = destY;
+    }
+
+    /**
+     * Makes the CONTROL spells cast last turn on a mob act on this turn.
+     */
+    void applyNextControls(int slot) {
+        touch(slot);
+        int count = nextControlCount[slot];
+        int from = slot * maxControls;
+        System.arraycopy(nextControlX, from, controlX, from, count);
+        System.arraycopy(nextControlY, from, controlY, from, count);
+        controlCount[slot] = count;
+        nextControlCount[slot] = 0;
+    }
+
+    /**
+     * Drops removed mobs, keeping the others in spawn order.
+     */
+    void compact() {
+        int to = heroCount;
+        for (int from = heroCount; from < size; ++from) {
+            if (hasFlag(from, REMOVED)) {
+                setSlotOf(id[from], -1);
+                continue;
+            }
+            if (from != to) {
+                touch(to);
+                copyRow(this, from, to);
+                setSlotOf(id[to], to);
+            }
+            to++;
+        }
+        size = to;
+    }
+
+    /**
+     * Makes this store a copy of another one, reusing its arrays when they are large enough.
+     */
+    void copyFrom(EntityStore other) {
+        if (maxControls != other.maxControls) {
+            throw new IllegalArgumentException("Stores must have the same number of controls per entity");
+        }
+        ensureCapacity(other.size);
+        int n = other.size;
+        size = n;
+        heroCount = other.heroCount;
+        System.arraycopy(other.id, 0, id, 0, n);
+        System.arraycopy(other.owner, 0, owner, 0, n);
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.vx, 0, vx, 0, n);
+        System.arraycopy(other.vy, 0, vy, 0, n);
+        System.arraycopy(other.health, 0, health, 0, n);
+        System.arraycopy(other.shieldDuration, 0, shieldDuration, 0, n);
+        System.arraycopy(other.flags, 0, flags, 0, n);
+        System.arraycopy(other.statusKnown, 0, statusKnown, 0, n);
+        System.arraycopy(other.statusState, 0, statusState, 0, n);
+        System.arraycopy(other.statusTarget, 0, statusTarget, 0, n);
+        System.arraycopy(other.statusTurns, 0, statusTurns, 0, n);
+        System.arraycopy(other.controlCount, 0, controlCount, 0, n);
+        System.arraycopy(other.controlX, 0, controlX, 0, n * maxControls);
+        System.arraycopy(other.controlY, 0, controlY, 0, n * maxControls);
+        System.arraycopy(other.nextControlCount, 0, nextControlCount, 0, n);
+        System.arraycopy(other.nextControlX, 0, nextControlX, 0, n * maxControls);
+        System.arraycopy(other.nextControlY, 0, nextControlY, 0, n * maxControls);
+        if (slotById.length < other.slotById.length) {
+            slotById = new int[other.slotById.length];
+        }
+        System.arraycopy(other.slotById, 0, slotById, 0, other.slotById.length);
+        Arrays.fill(slotById, other.slotById.length, slotById.length, -1);
+    }
+
+    /**
+     * Copies an entity from a slot of a store, possibly this one, to a slot of this store. The slot of its id is left unchanged.
+     */
+    void copyRow(EntityStore other, int from, int to) {
+        id[to] = other.id[from];
+        owner[to] = other.owner[from];
+        x[to] = other.x[from];
+        y[to] = other.y[from];
+        vx[to] = other.vx[from];
+        vy[to] = other.vy[from];
+        health[to] = other.health[from];
+        shieldDuration[to] = other.shieldDuration[from];
+        flags[to] = other.flags[from];
+        statusKnown[to] = other.statusKnown[from];
+        statusState[to] = other.statusState[from];
+        statusTarget[to] = other.statusTarget[from];
+        statusTurns[to] = other.statusTurns[from];
+        controlCount[to] = other.controlCount[from];
+        nextControlCount[to] = other.nextControlCount[from];
+        System.arraycopy(other.controlX, from * maxControls, controlX, to * maxControls, other.controlCount[from]);
+        System.arraycopy(other.controlY, from * maxControls, controlY, to * maxControls, other.controlCount[from]);
+        System.arraycopy(other.nextControlX, from * maxControls, nextControlX, to * maxControls, other.nextControlCount[from]);
+        System.arraycopy(other.nextControlY, from * maxControls, nextControlY, to * maxControls, other.nextControlCount[from]);
+    }
+
+    void ensureCapacity(int capacity) {
+        while (id.length < capacity) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        int capacity = id.length * 2;
+        id = Arrays.copyOf(id, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        health = Arrays.copyOf(health, capacity);
+        shieldDuration = Arrays.copyOf(shieldDuration, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        statusKnown = Arrays.copyOf(statusKnown, capacity);
+        statusState = Arrays.copyOf(statusState, capacity);
+        statusTarget = Arrays.copyOf(statusTarget, capacity);
+        statusTurns = Arrays.copyOf(statusTurns, capacity);
+        controlCount = Arrays.copyOf(controlCount, capacity);
+        controlX = Arrays.copyOf(controlX, capacity * maxControls);
+        controlY = Arrays.copyOf(controlY, capacity * maxControls);
+        nextControlCount = Arrays.copyOf(nextControlCount, capacity);
+        nextControlX = Arrays.copyOf(nextControlX, capacity * maxControls);
+        nextControlY = Arrays.copyOf(nextControlY, capacity * maxControls);
+    }
+}
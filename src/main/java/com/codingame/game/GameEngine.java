@@ -0,0 +1,1628 @@
+package com.codingame.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.codingame.game.action.Action;
+import com.codingame.game.action.ActionException;
+import com.codingame.game.action.ActionType;
+import com.codingame.game.event.Events;
+import com.codingame.view.Attack;
+import com.codingame.view.BaseAttack;
+import com.codingame.view.Coord;
+import com.codingame.view.SpellUse;
+
+/**
+ * Rules of the game, independent from the game manager and the view modules. A turn is played by calling {@link #step(List, List)} with
+ * the output lines of each player.
+ */
+public class GameEngine {
+
+    public static final int TYPE_MY_HERO = 0;
+    public static final int TYPE_ENEMY_HERO = 1;
+    public static final int TYPE_MOB = 2;
+    public static final int INPUT_TYPE_MOB = 0;
+    public static final int INPUT_TYPE_MY_HERO = 1;
+    public static final int INPUT_TYPE_ENEMY_HERO = 2;
+
+    public static final int MAX_TURNS = 220;
+
+    public static class Tooltip {
+        public int player;
+        public String message;
+    }
+
+    Configuration config;
+    int playerCount;
+    long seed;
+    GameRandom random;
+    EntityIdAllocator ids = new EntityIdAllocator();
+    private int turn = 1;
+    private boolean turnStarted;
+    private boolean commandsHandled;
+    private boolean tie;
+    private List<PlayerState> players = new ArrayList<>();
+    private List<Hero> allHeroes = new ArrayList<>();
+    private EntityStore store;
+    /** Positions of the entities at the start of the turn, then after the heroes have moved */
+    private SpatialGrid grid;
+    private UndoJournal undoJournal;
+    /** State before the first turn, which does not depend on the seed, for {@link #reset(long)} */
+    private final GameSnapshot initialState;
+    /** Null unless profiling is enabled */
+    private TurnProfiler profiler;
+    private MobSpawner mobSpawner;
+    private List<Attack> attacks = new ArrayList<>();
+    private List<SpellUse> spellUses = new ArrayList<>();
+    private List<BaseAttack> baseAttacks = new ArrayList<>();
+    private List<String> gameSummary = new ArrayList<>();
+    private List<Tooltip> tooltips = new ArrayList<>();
+    private Map<ActionType, List<Hero>> intentMap = new HashMap<>();
+    private Map<Set<Vector>, Double> positionKeyMap = new HashMap<>();
+
+    // Per-turn scratch buffers
+    private int[] manaGain;
+    private int[] manaGainOutside;
+    private boolean[] gainedMana;
+    private double[] pushX = new double[0];
+    private double[] pushY = new double[0];
+    private boolean[] isPushed = new boolean[0];
+    private int[] pushOrder = new int[0];
+    private boolean[] visible = new boolean[0];
+
+    /**
+     * Input lines of the entities for the current turn, built on first use and shared by all players. Heroes read differently for their
+     * owner, and mobs for the player they threaten, whose index is in <code>inputLineOwner</code>.
+     */
+    private String[] inputLineForOwner = new String[0];
+    private String[] inputLineForOthers = new String[0];
+    private int[] inputLineOwner = new int[0];
+    private StringBuilder inputLineBuilder = new StringBuilder(64);
+
+    Vector[] corners;
+    Vector[] startDirections = { new Vector(1, 1).normalize(), new Vector(-1, -1).normalize() };
+    List<Vector> basePositions = new ArrayList<>();
+
+    private Vector symmetryOrigin;
+
+    public GameEngine(Configuration config, long seed, int playerCount) {
+        this.config = config;
+        this.seed = seed;
+        this.playerCount = playerCount;
+        corners = new Vector[] { new Vector(0, 0), new Vector(config.MAP_WIDTH, config.MAP_HEIGHT) };
+        symmetryOrigin = new Vector(config.MAP_WIDTH / 2, config.MAP_HEIGHT / 2);
+        expected = config.ENABLE_WIND || config.ENABLE_CONTROL || config.ENABLE_SHIELD
+            ? "MOVE <x> <y> | SPELL <spell_command> | WAIT"
+            : "MOVE <x> <y> | WAIT";
+        parser = new CommandParser(config);
+
+        random = new GameRandom(this.seed);
+        store = new EntityStore(64, playerCount * config.HEROES_PER_PLAYER);
+        grid = new SpatialGrid(
+            -config.MAP_LIMIT, -config.MAP_LIMIT,
+            config.MAP_WIDTH + config.MAP_LIMIT, config.MAP_HEIGHT + config.MAP_LIMIT,
+            Math.max(100, config.HERO_ATTACK_RANGE)
+        );
+        manaGain = new int[playerCount];
+        manaGainOutside = new int[playerCount];
+        gainedMana = new boolean[playerCount];
+
+        mobSpawner = new MobSpawner(
+            config,
+            random,
+            ids,
+            config.MOB_SPAWN_LOCATIONS,
+            Configuration.MOB_SPAWN_MAX_DIRECTION_DELTA,
+            config.MOB_SPAWN_RATE
+        );
+
+        for (ActionType type : ActionType.values()) {
+            intentMap.put(type, new ArrayList<>());
+        }
+        initPlayers();
+        initialState = snapshot();
+    }
+
+    private Vector snapToGameZone(Vector v) {
+        double snapX = v.getX();
+        double snapY = v.getY();
+
+        if (snapX < 0)
+            snapX = 0;
+        if (snapX > config.MAP_WIDTH)
+            snapX = config.MAP_WIDTH;
+        if (snapY < 0)
+            snapY = 0;
+        if (snapY > config.MAP_HEIGHT)
+            snapY = config.MAP_HEIGHT;
+        return new Vector(snapX, snapY);
+    };
+
+    /**
+     * Computes the intersection between two segments.
+     *
+     * @param x1
+     *            Starting point of Segment 1
+     * @param y1
+     *            Starting point of Segment 1
+     * @param x2
+     *            Ending point of Segment 1
+     * @param y2
+     *            Ending point of Segment 1
+     * @param x3
+     *            Starting point of Segment 2
+     * @param y3
+     *            Starting point of Segment 2
+     * @param x4
+     *            Ending point of Segment 2
+     * @param y4
+     *            Ending point of Segment 2
+     * @return Vector where the segments intersect, or null if they don't
+     */
+    public Vector intersection(
+        double x1, double y1, double x2, double y2,
+        double x3, double y3, double x4, double y4
+    ) {
+        double d = (x1 - x2) * (y3 - y4) - (y1 - y2) * (x3 - x4);
+        if (d == 0) return null;
+
+        double xi = ((x3 - x4) * (x1 * y2 - y1 * x2) - (x1 - x2) * (x3 * y4 - y3 * x4)) / d;
+        double yi = ((y3 - y4) * (x1 * y2 - y1 * x2) - (y1 - y2) * (x3 * y4 - y3 * x4)) / d;
+
+        Vector p = new Vector(xi, yi);
+        if (xi < Math.min(x1, x2) || xi > Math.max(x1, x2)) return null;
+        if (xi < Math.min(x3, x4) || xi > Math.max(x3, x4)) return null;
+        if (yi < Math.min(y1, y2) || yi > Math.max(y1, y2)) return null;
+        if (yi < Math.min(y3, y4) || yi > Math.max(y3, y4)) return null;
+        return p;
+    }
+
+    public Vector intersection(Vector a, Vector b, Vector a2, Vector b2) {
+        return intersection(
+            a.getX(), a.getY(), b.getX(), b.getY(),
+            a2.getX(), a2.getY(), b2.getX(), b2.getY()
+        );
+    }
+
+    private void initPlayers() {
+        // Generate heroes
+        int spawnOffset = 1600;
+        int spaceBetweenHeroes = 400;
+
+        for (int i = 0; i < playerCount; ++i) {
+            PlayerState player = new PlayerState(config, i);
+            players.add(player);
+            Vector vector = (i < 2 ? new Vector(1, -1) : new Vector(1, 1)).normalize();
+            if (i % 2 == 1) {
+                vector = vector.mult(-1);
+            }
+
+            Vector startPoint = corners[i];
+
+            basePositions.add(startPoint);
+            double[] offsets = new double[] { 0, 1, -1, 2, -2, 3, -3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+            for (int j = 0; j < config.HEROES_PER_PLAYER; ++j) {
+                double offset = offsets[j + (1 - config.HEROES_PER_PLAYER % 2)];
+
+                Vector position = vector.mult(offset * (spaceBetweenHeroes)).add(startPoint).add(startDirections[i].mult(spawnOffset))
+                    .round();
+                position = snapToGameZone(position);
+                int id = ids.next();
+                int slot = store.addHero(id, i, position.getX(), position.getY());
+                Hero hero = new Hero(id, slot, j, player, startDirections[i].angle());
+                player.addHero(hero);
+                allHeroes.add(hero);
+            }
+        }
+    }
+
+    /**
+     * @return the lines sent to the given player before the first turn
+     */
+    public List<String> getGlobalInfoFor(int playerIndex) {
+        List<String> lines = new ArrayList<>();
+        // <baseX> <baseY>
+        lines.add(basePositions.get(playerIndex).toIntString());
+        // <heroesPerPlayer>
+        lines.add(String.valueOf(config.HEROES_PER_PLAYER));
+        return lines;
+    }
+
+    /**
+     * Plays a full turn with the given output lines. A <code>null</code> list is ignored, as for an inactive player.
+     */
+    public void step(List<String> actionsPlayer0, List<String> actionsPlayer1) {
+        beginTurn();
+        if (actionsPlayer0 != null && players.get(0).isActive()) {
+            handleCommands(players.get(0), actionsPlayer0);
+        }
+        if (actionsPlayer1 != null && players.get(1).isActive()) {
+            handleCommands(players.get(1), actionsPlayer1);
+        }
+        endTurn();
+    }
+
+    /**
+     * Prepares the next turn. Called implicitly by {@link #getGameStateFor(int)} and {@link #step(List, List)}.
+     */
+    public void beginTurn() {
+        if (!turnStarted) {
+            if (profiler != null) {
+                profiler.beginTurn(turn);
+            }
+            resetGameTurnData();
+            turnStarted = true;
+        }
+    }
+
+    void endTurn() {
+        performGameUpdate();
+
+        for (PlayerState player : players) {
+            if (player.getBaseHealth() == 0) {
+                player.deactivate("Base destroyed!");
+            }
+        }
+        turnStarted = false;
+        commandsHandled = false;
+        turn++;
+    }
+
+    /**
+     * @return a copy of the state of the game, to {@link #restore(GameSnapshot)} it later
+     */
+    public GameSnapshot snapshot() {
+        GameSnapshot snapshot = new GameSnapshot(this);
+        snapshot(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Copies the state of the game into a snapshot taken earlier from this engine, reusing its arrays. The state is that of the store,
+     * players, mob spawner, entity ids and random generator, so the snapshot must be taken before any command of the turn is handled.
+     */
+    public void snapshot(GameSnapshot into) {
+        if (into.engine != this) {
+            throw new IllegalArgumentException("Snapshot taken from another engine");
+        }
+        if (commandsHandled) {
+            throw new IllegalStateException("Commands of the turn have already been handled");
+        }
+        into.turn = turn;
+        into.turnStarted = turnStarted;
+        into.randomState = random.getState();
+        into.idCount = ids.count();
+        into.lastSpawn = mobSpawner.getLastSpawn();
+        into.currentMaxHealth = mobSpawner.getCurrentMaxHealth();
+        into.store.copyFrom(store);
+        for (int i = 0; i < playerCount; ++i) {
+            into.players[i].copyFrom(players.get(i));
+        }
+    }
+
+    /**
+     * Puts the game back in the state of a snapshot, which can be restored any number of times. The events of the turn (attacks, spell
+     * uses, base attacks, summary and tooltips) are not part of the state and are cleared.
+     */
+    public void restore(GameSnapshot from) {
+        if (from.engine != this) {
+            throw new IllegalArgumentException("Snapshot taken from another engine");
+        }
+        if (undoJournal != null) {
+            undoJournal.clear();
+            store.journal = null;
+        }
+        turn = from.turn;
+        turnStarted = from.turnStarted;
+        random.setState(from.randomState);
+        ids.reset(from.idCount);
+        mobSpawner.restore(from.lastSpawn, from.currentMaxHealth);
+        store.copyFrom(from.store);
+        for (int i = 0; i < playerCount; ++i) {
+            players.get(i).copyFrom(from.players[i]);
+        }
+        resetTurnEvents();
+    }
+
+    /**
+     * Starts a new game on this engine, as {@link #GameEngine(Configuration, long, int)} would with the same configuration, without
+     * allocating a new one: the state before the first turn is restored, and only the random generator depends on the seed.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        restore(initialState);
+        random.reseed(seed);
+    }
+
+    /**
+     * Opens a mark in the undo journal: until {@link #undo()} is called, every change to the game is recorded so that it can be undone
+     * in time proportional to what changed. Marks nest, so a search can mark before each step and undo back to the parent node.
+     * <p>
+     * As for {@link #snapshot()}, the commands of the turn must not have been handled yet.
+     */
+    public void mark() {
+        if (commandsHandled) {
+            throw new IllegalStateException("Commands of the turn have already been handled");
+        }
+        if (undoJournal == null) {
+            undoJournal = new UndoJournal(config, playerCount, store.maxControls);
+        }
+        UndoJournal.Mark mark = undoJournal.open();
+        mark.turn = turn;
+        mark.turnStarted = turnStarted;
+        mark.randomState = random.getState();
+        mark.idCount = ids.count();
+        mark.lastSpawn = mobSpawner.getLastSpawn();
+        mark.currentMaxHealth = mobSpawner.getCurrentMaxHealth();
+        mark.storeSize = store.size;
+        for (int i = 0; i < playerCount; ++i) {
+            mark.players[i].copyStatusFrom(players.get(i));
+        }
+        store.journal = undoJournal;
+    }
+
+    /**
+     * Puts the game back in the state of the last open mark, and closes it. The events of the turn are cleared, as in
+     * {@link #restore(GameSnapshot)}.
+     */
+    public void undo() {
+        if (undoJournal == null || undoJournal.getDepth() == 0) {
+            throw new IllegalStateException("No mark to undo to");
+        }
+        UndoJournal.Mark mark = undoJournal.close(store, players);
+        if (undoJournal.getDepth() == 0) {
+            store.journal = null;
+        }
+        turn = mark.turn;
+        turnStarted = mark.turnStarted;
+        random.setState(mark.randomState);
+        ids.reset(mark.idCount);
+        mobSpawner.restore(mark.lastSpawn, mark.currentMaxHealth);
+        for (int i = 0; i < playerCount; ++i) {
+            players.get(i).copyStatusFrom(mark.players[i]);
+        }
+        resetTurnEvents();
+    }
+
+    /**
+     * Clears what a restored state does not hold: intents, messages and events of the turn, and the data derived from the store.
+     */
+    private void resetTurnEvents() {
+        commandsHandled = false;
+        tie = false;
+        for (Hero h : allHeroes) {
+            h.intent = Action.IDLE;
+            h.message = null;
+        }
+        for (ActionType type : ActionType.values()) {
+            intentMap.get(type).clear();
+        }
+        attacks.clear();
+        spellUses.clear();
+        baseAttacks.clear();
+        gameSummary.clear();
+        tooltips.clear();
+        grid.build(store);
+        clearInputLines();
+    }
+
+    public boolean isOver() {
+        return turn > MAX_TURNS || getActivePlayers().size() < 2;
+    }
+
+    /**
+     * @param profiler
+     *            where to record the duration of each phase of the turns, or <code>null</code> to stop profiling
+     */
+    public void setProfiler(TurnProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public TurnProfiler getProfiler() {
+        return profiler;
+    }
+
+    public Configuration getConfiguration() {
+        return config;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public PlayerState getPlayer(int index) {
+        return players.get(index);
+    }
+
+    public List<PlayerState> getPlayers() {
+        return players;
+    }
+
+    public List<PlayerState> getActivePlayers() {
+        return players.stream().filter(PlayerState::isActive).collect(Collectors.toList());
+    }
+
+    List<Hero> getHeroes() {
+        return allHeroes;
+    }
+
+    EntityStore getStore() {
+        return store;
+    }
+
+    List<Attack> getAttacks() {
+        return attacks;
+    }
+
+    List<SpellUse> getSpellUses() {
+        return spellUses;
+    }
+
+    List<BaseAttack> getBaseAttacks() {
+        return baseAttacks;
+    }
+
+    List<Vector> getBasePositions() {
+        return basePositions;
+    }
+
+    /**
+     * @return the game summary lines produced since the last turn began
+     */
+    public List<String> getGameSummary() {
+        return gameSummary;
+    }
+
+    List<Tooltip> getTooltips() {
+        return tooltips;
+    }
+
+    private void performGameUpdate() {
+        for (GamePhase phase : GamePhase.ALL) {
+            Object event = Events.beginPhase();
+            if (profiler == null) {
+                performPhase(phase);
+            } else {
+                profiler.begin();
+                performPhase(phase);
+                profiler.end(phase);
+            }
+            Events.endPhase(event, turn, phase.name(), store.size - store.heroCount);
+        }
+    }
+
+    /**
+     * Performs one step of the resolution of the turn. They must all be performed, in order, after the commands are handled.
+     */
+    void performPhase(GamePhase phase) {
+        switch (phase) {
+        case CONTROL:
+            doControl();
+            break;
+        case SHIELD:
+            doShield();
+            break;
+        case MOVE_HEROES:
+            moveHeroes();
+            grid.build(store);
+            break;
+        case COMBAT:
+            performCombat();
+            break;
+        case PUSH:
+            doPush();
+            break;
+        case MOVE_MOBS:
+            moveMobs();
+            break;
+        case SHIELD_DECAY:
+            shieldDecay();
+            break;
+        case SPAWN:
+            spawnNewMobs(turn);
+            break;
+        case MANA_GAIN:
+            for (int i = 0; i < playerCount; ++i) {
+                if (gainedMana[i]) {
+                    players.get(i).gainMana(manaGain[i], manaGainOutside[i]);
+                }
+            }
+            break;
+        }
+    }
+
+    private void shieldDecay() {
+        int[] shieldDuration = store.shieldDuration;
+        for (int e = 0; e < store.size; ++e) {
+            if (shieldDuration[e] > 0) {
+                store.touch(e);
+                shieldDuration[e]--;
+            }
+        }
+    }
+
+    private void doPush() {
+        int size = store.size;
+        if (isPushed.length < size) {
+            pushX = new double[store.id.length];
+            pushY = new double[store.id.length];
+            isPushed = new boolean[store.id.length];
+            pushOrder = new int[store.id.length];
+        }
+        // Pushed entities in order of first push, so that random draws below don't depend on anything else
+        int pushCount = 0;
+
+        for (Hero hero : intentMap.get(ActionType.WIND)) {
+            try {
+                if (hero.owner.getMana() < config.SPELL_WIND_COST) {
+                    throw new ActionException("Not enough mana");
+                }
+                hero.owner.spendMana(config.SPELL_WIND_COST);
+                Action push = hero.intent;
+                recordSpellUse(hero);
+
+                Vector dir = new Vector(heroPosition(hero), push.getDestination()).normalize().mult(config.SPELL_WIND_DISTANCE);
+                int found = grid.query(store, store.x[hero.slot], store.y[hero.slot], config.SPELL_WIND_RADIUS);
+                int[] inRange = grid.getResult();
+                for (int k = 0; k < found; ++k) {
+                    int e = inRange[k];
+                    if (
+                        store.owner[e] == hero.owner.getIndex()
+                            || !insideVisibleMap(e)
+                            || hasActiveShield(e)
+                    ) {
+                        continue;
+                    }
+                    if (!isPushed[e]) {
+                        isPushed[e] = true;
+                        pushOrder[pushCount++] = e;
+                        pushX[e] = dir.getX();
+                        pushY[e] = dir.getY();
+                    } else {
+                        pushX[e] += dir.getX();
+                        pushY[e] += dir.getY();
+                    }
+                }
+            } catch (ActionException e) {
+                gameSummary.add(hero.owner.getNicknameToken() + " failed a WIND: " + e.getMessage());
+            }
+        }
+
+        positionKeyMap.clear();
+
+        //Calculate sum of pushes
+        for (int k = 0; k < pushCount; ++k) {
+            int e = pushOrder[k];
+            isPushed[e] = false;
+            Vector position = new Vector(store.x[e], store.y[e]);
+            Vector predictedPosition = new Vector(store.x[e] + pushX[e], store.y[e] + pushY[e]).symmetricTruncate(symmetryOrigin);
+
+            Vector baseWallIntersection = baseWallIntersection(position, predictedPosition);
+            if (!store.isMob(e) || baseWallIntersection != null) {
+                predictedPosition = snapToGameZone(baseWallIntersection == null ? predictedPosition : baseWallIntersection);
+            } else if (isInBaseAttractionZone(position) && !isInBaseAttractionZone(predictedPosition)) {
+                HashSet<Vector> pair = new HashSet<>();
+                pair.add(predictedPosition);
+                pair.add(predictedPosition.symmetric(symmetryOrigin));
+
+                double randomDouble;
+                Double existingRandom = positionKeyMap.get(pair);
+
+                if (existingRandom == null) {
+                    randomDouble = random.nextDouble();
+                    positionKeyMap.put(pair, randomDouble);
+                } else {
+                    randomDouble = existingRandom;
+                }
+
+                double randomDirection = randomDouble * Math.PI * 2;
+                if (existingRandom != null) {
+                    randomDirection += Math.PI;
+                }
+
+                Vector speed = new Vector(randomDirection).normalize().mult(config.MOB_MOVE_SPEED);
+                store.setSpeed(e, speed.getX(), speed.getY());
+            }
+
+            store.touch(e);
+            store.x[e] = predictedPosition.getX();
+            store.y[e] = predictedPosition.getY();
+            if (store.isMob(e)) {
+                store.statusKnown[e] = false;
+                store.flags[e] |= EntityStore.PUSHED;
+            }
+        }
+
+    }
+
+    private void recordSpellUse(Hero hero) {
+        Action push = hero.intent;
+        SpellUse su = new SpellUse();
+        su.hero = hero.id;
+        su.spell = push.getType().name();
+        su.target = push.getTarget();
+        if (push.getDestination() != null) {
+            su.destination = new Coord((int) push.getDestination().getX(), (int) push.getDestination().getY());
+        }
+        spellUses.add(su);
+
+    }
+
+    private Vector baseWallIntersection(Vector from, Vector to) {
+        int w = config.MAP_WIDTH;
+        int h = config.MAP_HEIGHT;
+        int baseRadius = config.BASE_ATTRACTION_RADIUS;
+        Vector intersection = null;
+        if (to.getY() > h) {
+            intersection = intersection(from.getX(), from.getY(), to.getX(), to.getY(), w - baseRadius, h, w, h);
+        } else if (to.getY() < 0) {
+            intersection = intersection(from.getX(), from.getY(), to.getX(), to.getY(), 0, 0, baseRadius, 0);
+        }
+        if (intersection == null) {
+            if (to.getX() > w) {
+                intersection = intersection(from.getX(), from.getY(), to.getX(), to.getY(), w, h - baseRadius, w, h);
+            } else if (to.getX() < 0) {
+                intersection = intersection(from.getX(), from.getY(), to.getX(), to.getY(), 0, 0, 0, baseRadius);
+            }
+        }
+        return intersection != null ? intersection.symmetricTruncate(symmetryOrigin) : null;
+    }
+
+    private boolean isInBaseAttractionZone(Vector v) {
+        for (Vector basePosition : basePositions) {
+            if (v.inRange(basePosition, config.BASE_ATTRACTION_RADIUS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the slot of the entity with the given id, if it is inside the map
+     */
+    private int findVisibleEntity(int id) throws ActionException {
+        int e = store.slotOf(id);
+        if (e < 0 || !insideVisibleMap(e)) {
+            throw new ActionException("Could not find entity " + id);
+        }
+        return e;
+    }
+
+    private void doShield() {
+        // A protective bubble will appear around target on next turn
+        for (Hero hero : intentMap.get(ActionType.SHIELD)) {
+            Action control = hero.intent;
+            try {
+                if (hero.owner.getMana() < config.SPELL_PROTECT_COST) {
+                    throw new ActionException("Not enough mana");
+                }
+                int entity = findVisibleEntity(control.getTarget());
+                int entityId = store.id[entity];
+
+                if (canSee(hero, entity)) {
+                    hero.owner.spendMana(config.SPELL_PROTECT_COST);
+                    recordSpellUse(hero);
+                    if (!hasActiveShield(entity)) {
+                        store.touch(entity);
+                        store.shieldDuration[entity] = config.SPELL_PROTECT_DURATION + 1;
+                    } else {
+                        throw new ActionException("Entity " + entityId + " already has a shield up");
+                    }
+
+                } else {
+                    if (canSee(hero.getOwner(), entity)) {
+                        throw new ActionException("Entity " + entityId + " is not within range of Hero " + hero.id);
+                    } else {
+                        throw new ActionException("Hero " + hero.id + " doesn't know where entity " + entityId + " is");
+                    }
+                }
+            } catch (ActionException e) {
+                gameSummary.add(hero.owner.getNicknameToken() + " failed a SHIELD: " + e.getMessage());
+            }
+        }
+
+    }
+
+    private void doControl() {
+        // Incept next action into victim's mind
+        for (Hero hero : intentMap.get(ActionType.CONTROL)) {
+            Action control = hero.intent;
+            try {
+                if (hero.owner.getMana() < config.SPELL_CONTROL_COST) {
+                    throw new ActionException("Not enough mana");
+                }
+                int victim = findVisibleEntity(control.getTarget());
+                int victimId = store.id[victim];
+
+                if (canSee(hero, victim)) {
+
+                    hero.owner.spendMana(config.SPELL_CONTROL_COST);
+
+                    recordSpellUse(hero);
+
+                    if (!hasActiveShield(victim)) {
+                        Vector destination = control.getDestination();
+                        if (store.isMob(victim)) {
+                            store.addNextControl(victim, destination.getX(), destination.getY());
+                        } else {
+                            store.addControl(victim, destination.getX(), destination.getY());
+                        }
+                    } else {
+                        throw new ActionException("Entity " + victimId + " has a shield up");
+                    }
+
+                } else {
+                    if (canSee(hero.getOwner(), victim)) {
+                        throw new ActionException("Entity " + victimId + " is not within range of Hero " + hero.id);
+                    } else {
+                        throw new ActionException("Hero " + hero.id + " doesn't know where entity " + victimId + " is");
+                    }
+                }
+            } catch (ActionException e) {
+                gameSummary.add(hero.owner.getNicknameToken() + " failed a CONTROL: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean hasActiveShield(int e) {
+        int shieldDuration = store.shieldDuration[e];
+        return shieldDuration > 0 && shieldDuration < config.SPELL_PROTECT_DURATION + 1;
+    }
+
+    boolean hadActiveShield(int e) {
+        int shieldDuration = store.shieldDuration[e];
+        return shieldDuration > 0 && shieldDuration < config.SPELL_PROTECT_DURATION;
+    }
+
+    private boolean canSee(Hero hero, int entity) {
+        if (config.ENABLE_FOG) {
+            return inRange(entity, store.x[hero.slot], store.y[hero.slot], config.HERO_VIEW_RADIUS);
+        }
+        return true;
+    }
+
+    private boolean canSee(PlayerState player, int entity) {
+        if (!insideVisibleMap(entity)) {
+            return false;
+        }
+        if (store.owner[entity] == player.getIndex()) {
+            return true;
+        }
+        Vector base = basePositions.get(player.getIndex());
+        if (inRange(entity, base.getX(), base.getY(), config.BASE_VIEW_RADIUS)) {
+            return true;
+        }
+        for (Hero hero : player.heroes) {
+            if (canSee(hero, entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills <code>visible</code> with {@link #canSee(PlayerState, int)} for every slot, querying the grid around the base and heroes of
+     * the player instead of testing every pair.
+     */
+    private void computeVisibility(PlayerState player) {
+        int size = store.size;
+        if (visible.length < size) {
+            visible = new boolean[store.id.length];
+        }
+        if (!config.ENABLE_FOG && !player.heroes.isEmpty()) {
+            Arrays.fill(visible, 0, size, true);
+        } else {
+            Arrays.fill(visible, 0, size, false);
+            Vector base = basePositions.get(player.getIndex());
+            markVisible(base.getX(), base.getY(), config.BASE_VIEW_RADIUS);
+            // Indexed, as the observation encoder must not allocate an iterator
+            for (int i = 0; i < player.heroes.size(); ++i) {
+                Hero hero = player.heroes.get(i);
+                visible[hero.slot] = true;
+                markVisible(store.x[hero.slot], store.y[hero.slot], config.HERO_VIEW_RADIUS);
+            }
+        }
+        for (int e = 0; e < size; ++e) {
+            visible[e] &= insideVisibleMap(e);
+        }
+    }
+
+    /**
+     * @return whether each slot of the store is visible to the player, valid until the next call
+     */
+    boolean[] getVisibility(int playerIndex) {
+        computeVisibility(players.get(playerIndex));
+        return visible;
+    }
+
+    boolean isTurnStarted() {
+        return turnStarted;
+    }
+
+    private void markVisible(double x, double y, int range) {
+        int found = grid.query(store, x, y, range);
+        int[] inRange = grid.getResult();
+        for (int k = 0; k < found; ++k) {
+            visible[inRange[k]] = true;
+        }
+    }
+
+    private void spawnNewMobs(int turn) {
+        mobSpawner.update(turn, store);
+    }
+
+    private void moveMobs() {
+        double[] x = store.x;
+        double[] y = store.y;
+        for (int mob = store.heroCount; mob < store.size; ++mob) {
+            store.touch(mob);
+            if (!insideMap(mob)) {
+                removeMob(mob);
+                continue;
+            }
+
+            if (!moveCancelled(mob)) {
+                if (store.isControlled(mob)) {
+                    Vector position = new Vector(x[mob], y[mob]);
+                    Vector computedDestination = computeControlResult(mob, config.MOB_MOVE_SPEED);
+                    Vector newSpeed = new Vector(position, computedDestination);
+
+                    Vector baseWallIntersection = baseWallIntersection(position, computedDestination);
+                    computedDestination = snapToGameZone(baseWallIntersection == null ? computedDestination : baseWallIntersection);
+
+                    Vector newPosition = computedDestination.symmetricTruncate(symmetryOrigin);
+                    x[mob] = newPosition.getX();
+                    y[mob] = newPosition.getY();
+                    if (!newSpeed.isZero()) {
+                        setTruncatedSpeed(mob, newSpeed.getX(), newSpeed.getY(), config.MOB_MOVE_SPEED);
+                    }
+                } else {
+                    x[mob] = symmetricTruncate(x[mob] + store.vx[mob], symmetryOrigin.getX());
+                    y[mob] = symmetricTruncate(y[mob] + store.vy[mob], symmetryOrigin.getY());
+                }
+            }
+            for (int idx = 0; idx < basePositions.size(); ++idx) {
+                Vector base = basePositions.get(idx);
+                double baseX = base.getX();
+                double baseY = base.getY();
+                if (inRange(mob, baseX, baseY, config.BASE_RADIUS) && store.health[mob] > 0) {
+                    removeMob(mob);
+                    PlayerState p = players.get(idx);
+                    p.damageBase();
+                    if (p.getBaseHealth() > 0) {
+                        Tooltip tooltip = new Tooltip();
+                        tooltip.player = idx;
+                        tooltip.message = "Base attacked!";
+                        tooltips.add(tooltip);
+                    }
+                    BaseAttack a = new BaseAttack();
+                    a.player = idx;
+                    a.mob = store.id[mob];
+                    baseAttacks.add(a);
+                    continue;
+                }
+
+                if (mobCanDetectBase(mob, baseX, baseY)) {
+                    double dx = baseX - x[mob];
+                    double dy = baseY - y[mob];
+                    int distanceToStep = (int) Math.min(Math.sqrt(dx * dx + dy * dy), config.MOB_MOVE_SPEED);
+                    setTruncatedSpeed(mob, dx, dy, distanceToStep);
+                    if (players.get(idx).spotted.add(store.id[mob]) && store.journal != null) {
+                        store.journal.saveSpotted(idx, store.id[mob]);
+                    }
+                } else if (inRange(mob, baseX, baseY, config.BASE_ATTRACTION_RADIUS)) {
+                    double objective = x[mob] < 0 || y[mob] < 0 ? -1 : 1;
+                    setTruncatedSpeed(mob, objective, objective, config.MOB_MOVE_SPEED);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Sets the speed of a mob to the given direction, scaled to the given length and truncated, as
+     * <code>direction.normalize().mult(length).truncate()</code>.
+     */
+    private void setTruncatedSpeed(int mob, double directionX, double directionY, double length) {
+        double norm = Math.sqrt(directionX * directionX + directionY * directionY);
+        if (norm == 0) {
+            store.setSpeed(mob, 0, 0);
+        } else {
+            store.setSpeed(mob, (int) (directionX / norm * length), (int) (directionY / norm * length));
+        }
+    }
+
+    private boolean moveCancelled(int mob) {
+        return store.health[mob] <= 0 || store.hasFlag(mob, EntityStore.PUSHED);
+    }
+
+    private void removeMob(int mob) {
+        store.touch(mob);
+        store.flags[mob] |= EntityStore.REMOVED;
+    }
+
+    private void performCombat() {
+        double[] x = store.x;
+        double[] y = store.y;
+        Arrays.fill(manaGain, 0);
+        Arrays.fill(manaGainOutside, 0);
+        Arrays.fill(gainedMana, false);
+
+        //Deal hero damage to mobs
+        for (Hero h : allHeroes) {
+            double heroX = x[h.slot];
+            double heroY = y[h.slot];
+            int owner = h.owner.getIndex();
+            List<Integer> mobsHit = null;
+            Vector base = basePositions.get(owner);
+            boolean isOutsideBaseRadius = !inRange(h.slot, base.getX(), base.getY(), config.BASE_ATTRACTION_RADIUS);
+
+            int found = grid.query(store, heroX, heroY, config.HERO_ATTACK_RANGE);
+            int[] inRange = grid.getResult();
+            for (int k = 0; k < found; ++k) {
+                int mob = inRange[k];
+                if (!store.isMob(mob) || !insideVisibleMap(mob)) {
+                    continue;
+                }
+                store.touch(mob);
+                store.health[mob] -= config.HERO_ATTACK_DAMAGE;
+                store.flags[mob] |= EntityStore.HEALTH_CHANGED;
+
+                gainedMana[owner] = true;
+                manaGain[owner] += config.HERO_ATTACK_DAMAGE;
+                manaGainOutside[owner] += isOutsideBaseRadius ? config.HERO_ATTACK_DAMAGE : 0;
+
+                if (store.health[mob] <= 0) {
+                    removeMob(mob);
+                }
+                if (mobsHit == null) {
+                    mobsHit = new ArrayList<>();
+                }
+                mobsHit.add(store.id[mob]);
+            }
+
+            if (mobsHit != null) {
+                Attack a = new Attack();
+                attacks.add(a);
+                a.hero = h.id;
+                a.mobs = mobsHit;
+            }
+        }
+    }
+
+    private void moveHeroes() {
+        //Handle hero MOVES
+        for (Hero h : intentMap.get(ActionType.MOVE)) {
+            Action move = h.intent;
+            Vector destination = snapToGameZone(move.getDestination());
+            store.touch(h.slot);
+            store.x[h.slot] = destination.getX();
+            store.y[h.slot] = destination.getY();
+        }
+
+    }
+
+    /**
+     * Called before player outputs are handled
+     */
+    private void resetGameTurnData() {
+        // Reset intentions
+        for (Hero h : allHeroes) {
+            h.intent = Action.IDLE;
+            h.message = null;
+        }
+        for (ActionType type : ActionType.values()) {
+            intentMap.get(type).clear();
+        }
+
+        // Remove dead mobs
+        store.compact();
+
+        // Reset heroes and mobs
+        for (int e = 0; e < store.size; ++e) {
+            if (store.hasFlag(e, EntityStore.NEW)) {
+                store.touch(e);
+                store.flags[e] &= ~EntityStore.NEW;
+            }
+        }
+        for (int mob = store.heroCount; mob < store.size; ++mob) {
+            store.applyNextControls(mob);
+            store.flags[mob] &= ~(EntityStore.PUSHED | EntityStore.HEALTH_CHANGED);
+
+            if (store.isControlled(mob)) {
+                Vector computedDestination = computeControlResult(mob, config.MOB_MOVE_SPEED);
+                double speedX = computedDestination.getX() - store.x[mob];
+                double speedY = computedDestination.getY() - store.y[mob];
+
+                if (speedX != 0 || speedY != 0) {
+                    setTruncatedSpeed(mob, speedX, speedY, config.MOB_MOVE_SPEED);
+                }
+            }
+        }
+
+        // Reset view info
+        attacks.clear();
+        spellUses.clear();
+        baseAttacks.clear();
+        gameSummary.clear();
+        tooltips.clear();
+        players.stream()
+            .forEach(PlayerState::resetViewData);
+
+        grid.build(store);
+        clearInputLines();
+        predictVisibleMobStatuses();
+    }
+
+    /**
+     * Predicts the status of the mobs the players see, as reading their input would, so that reading it has no side effect. A status is
+     * kept from the first turn its mob is seen until its course changes, so it must not be predicted earlier.
+     */
+    private void predictVisibleMobStatuses() {
+        for (PlayerState player : players) {
+            if (!player.isActive()) {
+                continue;
+            }
+            computeVisibility(player);
+            for (int mob = store.heroCount; mob < store.size; ++mob) {
+                if (visible[mob]) {
+                    updateMobStatus(mob);
+                }
+            }
+        }
+    }
+
+    private boolean inRange(int e, double x, double y, double range) {
+        double dx = x - store.x[e];
+        double dy = y - store.y[e];
+        return dx * dx + dy * dy <= range * range;
+    }
+
+    private boolean mobCanDetectBase(int mob, double baseX, double baseY) {
+        return insideVisibleMap(mob) && inRange(mob, baseX, baseY, config.BASE_ATTRACTION_RADIUS);
+    }
+
+    private Vector heroPosition(Hero hero) {
+        return new Vector(store.x[hero.slot], store.y[hero.slot]);
+    }
+
+    static double symmetricTruncate(double coordinate, double origin) {
+        return (int) (coordinate - origin) + origin;
+    }
+
+    private String expected;
+    private CommandParser parser;
+
+    void handleCommands(PlayerState player, List<String> lines) {
+        if (profiler == null) {
+            applyCommands(player, lines);
+            return;
+        }
+        profiler.begin();
+        try {
+            applyCommands(player, lines);
+        } finally {
+            profiler.end(TurnProfiler.Section.HANDLE_COMMANDS);
+        }
+    }
+
+    private void applyCommands(PlayerState player, List<String> lines) {
+        commandsHandled = true;
+        clearInputLines();
+        int i = 0;
+        for (String line : lines) {
+            Hero hero = player.heroes.get(i++);
+            if (store.isControlled(hero.slot)) {
+                applyControlledMove(hero);
+                continue;
+            }
+            try {
+                ActionType command = parser.parse(line);
+                if (command == null) {
+                    throw new InvalidInputException(expected, line);
+                }
+                applyIntent(hero, command, parser.id, parser.x, parser.y);
+                //Message
+                if (parser.message != null) {
+                    hero.setMessage(CommandParser.filterMessage(parser.message));
+                }
+
+            } catch (InvalidInputException e) {
+                player.deactivate(e.getMessage());
+                gameSummary.add("Bad command");
+                return;
+            } catch (Exception e) {
+                player.deactivate(new InvalidInputException(e.toString(), expected, line).getMessage());
+                gameSummary.add("Bad command");
+                return;
+            }
+
+        }
+    }
+
+    /**
+     * Same as {@link #handleCommands(PlayerState, List)} with commands already decoded, for a {@link BatchEnvironment}: one action of
+     * {@link BatchEnvironment#ACTION_SIZE} ints per hero from <code>offset</code>. As for a line, a spell that is not enabled in the
+     * league deactivates the player.
+     */
+    void handleActions(PlayerState player, int[] actions, int offset) {
+        commandsHandled = true;
+        clearInputLines();
+        for (int i = 0; i < player.heroes.size(); ++i) {
+            Hero hero = player.heroes.get(i);
+            if (store.isControlled(hero.slot)) {
+                applyControlledMove(hero);
+                continue;
+            }
+            int action = offset + i * BatchEnvironment.ACTION_SIZE;
+            ActionType command = BatchEnvironment.getActionType(actions[action]);
+            if (command == null || !isEnabled(command)) {
+                player.deactivate(new InvalidInputException(expected, "action " + actions[action]).getMessage());
+                gameSummary.add("Bad command");
+                return;
+            }
+            applyIntent(
+                hero, command, actions[action + BatchEnvironment.ACTION_TARGET], actions[action + BatchEnvironment.ACTION_X],
+                actions[action + BatchEnvironment.ACTION_Y]
+            );
+        }
+    }
+
+    private boolean isEnabled(ActionType command) {
+        switch (command) {
+        case WIND:
+            return config.ENABLE_WIND;
+        case SHIELD:
+            return config.ENABLE_SHIELD;
+        case CONTROL:
+            return config.ENABLE_CONTROL;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the command of a hero under CONTROL spells by the move they force.
+     */
+    private void applyControlledMove(Hero hero) {
+        Vector computedDestination = computeControlResult(hero.slot, config.HERO_MOVE_SPEED);
+
+        Action intent = hero.newIntent(ActionType.MOVE);
+        intent.setForced(true);
+        intent.setDestination(computedDestination.symmetricTruncate(symmetryOrigin));
+        store.touch(hero.slot);
+        store.controlCount[hero.slot] = 0;
+        recordIntention(hero, intent);
+        hero.setMessage(null);
+    }
+
+    private void applyIntent(Hero hero, ActionType command, int id, int x, int y) {
+        switch (command) {
+        case MOVE:
+            if (store.x[hero.slot] != x || store.y[hero.slot] != y) {
+                Action intent = hero.newIntent(ActionType.MOVE);
+                int speed = config.HERO_MOVE_SPEED;
+                Vector target = stepTo(heroPosition(hero), new Vector(x, y), speed);
+
+                // Don't use doubles for internal positions else players won't be able to determine state N+1 from state N.
+                intent.setDestination(
+                    target.symmetricTruncate(symmetryOrigin)
+                );
+                recordIntention(hero, intent);
+            }
+            break;
+        case WIND: {
+            Action intent = hero.newIntent(ActionType.WIND);
+            intent.setDestination(new Vector(x, y));
+            recordIntention(hero, intent);
+            break;
+        }
+        case SHIELD: {
+            Action intent = hero.newIntent(ActionType.SHIELD);
+            intent.setTarget(id);
+            recordIntention(hero, intent);
+            break;
+        }
+        case CONTROL: {
+            Action intent = hero.newIntent(ActionType.CONTROL);
+            intent.setTarget(id);
+            intent.setDestination(new Vector(x, y));
+            recordIntention(hero, intent);
+            break;
+        }
+        default:
+            // WAIT
+            break;
+        }
+    }
+
+    private Vector computeControlResult(int e, int moveSpeed) {
+        Vector position = new Vector(store.x[e], store.y[e]);
+        int count = store.controlCount[e];
+        Vector sum = null;
+        for (int k = e * store.maxControls; k < e * store.maxControls + count; ++k) {
+            Vector step = stepTo(position, new Vector(store.controlX[k], store.controlY[k]), moveSpeed);
+            sum = sum == null ? step : sum.add(step);
+        }
+        return sum.mult(1d / count);
+    }
+
+    private static Vector stepTo(Vector position, Vector destination, int speed) {
+        Vector v = new Vector(position, destination);
+        Vector target;
+        if (v.lengthSquared() <= speed * speed) {
+            target = v;
+        } else {
+            target = v.normalize().mult(speed);
+        }
+        return position.add(target);
+    }
+
+    private void recordIntention(Hero hero, Action intent) {
+        hero.intent = intent;
+        intentMap.get(intent.getType()).add(hero);
+    }
+
+    /**
+     * @return the lines sent to the given player at the start of the current turn
+     */
+    public List<String> getGameStateFor(int playerIndex) {
+        if (profiler == null) {
+            return buildGameState(playerIndex);
+        }
+        profiler.begin();
+        List<String> lines = buildGameState(playerIndex);
+        profiler.end(TurnProfiler.Section.GAME_STATE);
+        return lines;
+    }
+
+    private List<String> buildGameState(int playerIndex) {
+        beginTurn();
+        PlayerState player = players.get(playerIndex);
+        List<String> entityLines = new ArrayList<>();
+        computeVisibility(player);
+
+        // Heroes first, then mobs, as they are ordered in the store
+        for (int e = 0; e < store.size; ++e) {
+            if (visible[e]) {
+                entityLines.add(getEntityInputLine(e, player));
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        // <health> <mana>
+        lines.add(join(player.getBaseHealth(), player.getMana()));
+        players.stream()
+            .filter(p -> p != player)
+            .forEach(p -> {
+                lines.add(join(p.getBaseHealth(), p.getMana()));
+            });
+
+        // <entityCount>
+        lines.add(String.valueOf(entityLines.size()));
+        //Mobs
+        // <id> <type> <x> <y> <shieldLife> <isControlled> <health> <vx> <vy> <state> <target>
+        //Heroes
+        // <id> <type> <x> <y> <shieldLife> <isControlled> -1 -1 -1 -1 -1
+        lines.addAll(entityLines);
+        return lines;
+    }
+
+    private String getEntityInputLine(int e, PlayerState player) {
+        if (inputLineForOwner.length < store.size) {
+            inputLineForOwner = new String[store.id.length];
+            inputLineForOthers = new String[store.id.length];
+            inputLineOwner = new int[store.id.length];
+        }
+        if (inputLineForOwner[e] == null) {
+            buildEntityInputLines(e);
+        }
+        return inputLineOwner[e] == player.getIndex() ? inputLineForOwner[e] : inputLineForOthers[e];
+    }
+
+    private void buildEntityInputLines(int e) {
+        StringBuilder line = inputLineBuilder;
+        line.setLength(0);
+        if (!store.isMob(e)) {
+            // <id> <type> <x> <y> <shieldLife> <isControlled> -1 -1 -1 -1 -1
+            inputLineOwner[e] = store.owner[e];
+            appendHeroInputLine(line, e, INPUT_TYPE_MY_HERO);
+            inputLineForOwner[e] = line.toString();
+            line.setLength(0);
+            appendHeroInputLine(line, e, INPUT_TYPE_ENEMY_HERO);
+            inputLineForOthers[e] = line.toString();
+            return;
+        }
+        // <id> <type> <x> <y> <shieldLife> <isControlled> <health> <vx> <vy> <state> <target>
+        updateMobStatus(e);
+        line.append(store.id[e]).append(' ')
+            .append(INPUT_TYPE_MOB).append(' ')
+            .append((int) store.x[e]).append(' ').append((int) store.y[e]).append(' ')
+            .append(store.shieldDuration[e]).append(' ')
+            .append(store.isControlled(e) ? 1 : 0).append(' ')
+            .append(store.health[e]).append(' ')
+            .append((int) store.vx[e]).append(' ').append((int) store.vy[e]).append(' ')
+            .append(store.statusState[e]).append(' ');
+        int common = line.length();
+        if (store.statusTarget[e] < 0) {
+            inputLineOwner[e] = -1;
+            inputLineForOthers[e] = line.append(MobStatus.NEITHER).toString();
+            inputLineForOwner[e] = inputLineForOthers[e];
+        } else {
+            inputLineOwner[e] = store.statusTarget[e];
+            inputLineForOwner[e] = line.append(MobStatus.YOU).toString();
+            line.setLength(common);
+            inputLineForOthers[e] = line.append(MobStatus.ENEMY).toString();
+        }
+    }
+
+    private void appendHeroInputLine(StringBuilder line, int hero, int type) {
+        line.append(store.id[hero]).append(' ')
+            .append(type).append(' ')
+            .append((int) store.x[hero]).append(' ').append((int) store.y[hero]).append(' ')
+            .append(store.shieldDuration[hero]).append(' ')
+            .append(store.isControlled(hero) ? 1 : 0)
+            .append(" -1 -1 -1 -1 -1");
+    }
+
+    /**
+     * Entity input lines depend on the state at the start of the turn, and on CONTROL spells that handling commands consumes.
+     */
+    private void clearInputLines() {
+        Arrays.fill(inputLineForOwner, null);
+    }
+
+    static final int WANDERING = 0;
+    static final int ATTACKING = 1;
+
+    /**
+     * Predicts the status of a mob as sent to the players into the store, unless it is known already: it is kept until the trajectory of
+     * the mob changes, but for controlled mobs.
+     */
+    private void updateMobStatus(int mob) {
+        if (store.statusKnown[mob] && !store.isControlled(mob)) {
+            return;
+        }
+        double speedX = store.vx[mob];
+        double speedY = store.vy[mob];
+        if (store.isControlled(mob)) {
+            Vector computedDestination = computeControlResult(mob, config.MOB_MOVE_SPEED);
+            speedX = computedDestination.getX() - store.x[mob];
+            speedY = computedDestination.getY() - store.y[mob];
+        }
+        if (speedX == 0 && speedY == 0) {
+            setMobStatus(mob, WANDERING, -1, 0);
+        } else {
+            predictMobStatus(mob, store.x[mob], store.y[mob], speedX, speedY);
+        }
+    }
+
+    private void setMobStatus(int mob, int state, int target, int turns) {
+        store.touch(mob);
+        store.statusKnown[mob] = true;
+        store.statusState[mob] = state;
+        store.statusTarget[mob] = target;
+        store.statusTurns[mob] = turns;
+    }
+
+    /** Number of turns after which a mob is considered to never reach a base nor leave the map */
+    private static final int MOB_STATUS_HORIZON = 8000;
+
+    /**
+     * Predicts the fate of a mob moving in a straight line: the first base attraction zone it enters, or the edge of the map it
+     * crosses. Mobs normally have integer positions and speeds, for which the truncation of each move is a no-op, so the path is solved
+     * exactly in integer arithmetic. Otherwise, the moves are simulated.
+     * <p>
+     * The status is written to the store, in the slot of the given mob.
+     */
+    void predictMobStatus(int mob, double x, double y, double vx, double vy) {
+        if (!isSmallInteger(x) || !isSmallInteger(y) || !isSmallInteger(vx) || !isSmallInteger(vy)
+            || !isSmallInteger(symmetryOrigin.getX()) || !isSmallInteger(symmetryOrigin.getY())) {
+            simulateMobStatus(mob, x, y, vx, vy);
+            return;
+        }
+        long px = (long) x;
+        long py = (long) y;
+        long sx = (long) vx;
+        long sy = (long) vy;
+
+        long leaveTurn = Math.min(
+            turnsUntilOutside(px, config.MAP_WIDTH, sx),
+            turnsUntilOutside(py, config.MAP_HEIGHT, sy)
+        );
+        long baseTurn = Long.MAX_VALUE;
+        int target = -1;
+        for (int idx = 0; idx < basePositions.size(); ++idx) {
+            Vector base = basePositions.get(idx);
+            if (!isSmallInteger(base.getX()) || !isSmallInteger(base.getY())) {
+                simulateMobStatus(mob, x, y, vx, vy);
+                return;
+            }
+            long turns = turnsUntilInRange(px - (long) base.getX(), py - (long) base.getY(), sx, sy, config.BASE_ATTRACTION_RADIUS);
+            // Strictly lower, so that the first base wins when several are reached on the same turn
+            if (turns < baseTurn) {
+                baseTurn = turns;
+                target = idx;
+            }
+        }
+
+        // Leaving the map takes precedence when both happen on the same turn
+        if (leaveTurn <= baseTurn) {
+            setMobStatus(mob, WANDERING, -1, leaveTurn >= MOB_STATUS_HORIZON ? 0 : (int) leaveTurn);
+        } else if (baseTurn >= MOB_STATUS_HORIZON) {
+            setMobStatus(mob, WANDERING, -1, 0);
+        } else {
+            setMobStatus(mob, baseTurn == 0 ? ATTACKING : WANDERING, target, (int) baseTurn);
+        }
+    }
+
+    private static boolean isSmallInteger(double value) {
+        return value == Math.rint(value) && Math.abs(value) <= 1 << 24;
+    }
+
+    /**
+     * @return the first turn on which <code>position + turn * speed</code> is outside of <code>[0, max]</code>
+     */
+    private static long turnsUntilOutside(long position, long max, long speed) {
+        if (position < 0 || position > max) {
+            return 0;
+        }
+        if (speed > 0) {
+            return (max - position) / speed + 1;
+        }
+        if (speed < 0) {
+            return position / -speed + 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Solves <code>|d + turn * v|^2 <= r^2</code>, a quadratic in <code>turn</code>, for its first non-negative integer solution.
+     *
+     * @return the first turn on which the point offset by <code>(dx, dy)</code> from the circle center is in range, or
+     *         <code>Long.MAX_VALUE</code> if it never is
+     */
+    private static long turnsUntilInRange(long dx, long dy, long vx, long vy, long range) {
+        long a = vx * vx + vy * vy;
+        long b = dx * vx + dy * vy;
+        long c = dx * dx + dy * dy - range * range;
+        if (c <= 0) {
+            return 0;
+        }
+        if (b >= 0) {
+            // Moving away from the center
+            return Long.MAX_VALUE;
+        }
+        long closest = -b / a;
+        double root = (-b - Math.sqrt(Math.max(0, (double) b * b - (double) a * c))) / a;
+        long turn = Math.min(closest, Math.max(0, (long) Math.ceil(root)));
+        // The estimate may be off by rounding errors, the exact test settles it
+        while (turn > 0 && quadratic(a, b, c, turn - 1) <= 0) {
+            turn--;
+        }
+        while (quadratic(a, b, c, turn) > 0) {
+            if (turn > closest) {
+                return Long.MAX_VALUE;
+            }
+            turn++;
+        }
+        return turn;
+    }
+
+    private static long quadratic(long a, long b, long c, long t) {
+        return a * t * t + 2 * b * t + c;
+    }
+
+    /**
+     * Moves a copy of a mob turn by turn, truncating its position as {@link #moveMobs()} does. The reference of
+     * {@link #predictMobStatus(int, double, double, double, double)}, which it must always agree with.
+     */
+    void simulateMobStatus(int mob, double x, double y, double vx, double vy) {
+        double originX = symmetryOrigin.getX();
+        double originY = symmetryOrigin.getY();
+        double range = config.BASE_ATTRACTION_RADIUS;
+        for (int turns = 0; turns < MOB_STATUS_HORIZON; ++turns) {
+            // Am I outside the map?
+            if (!(x >= 0 && x <= config.MAP_WIDTH && y >= 0 && y <= config.MAP_HEIGHT)) {
+                setMobStatus(mob, WANDERING, -1, turns);
+                return;
+            }
+            // Am I inside an attraction zone?
+            for (int idx = 0; idx < basePositions.size(); ++idx) {
+                Vector base = basePositions.get(idx);
+                double dx = base.getX() - x;
+                double dy = base.getY() - y;
+                if (dx * dx + dy * dy <= range * range) {
+                    setMobStatus(mob, turns == 0 ? ATTACKING : WANDERING, idx, turns);
+                    return;
+                }
+            }
+            x = symmetricTruncate(x + vx, originX);
+            y = symmetricTruncate(y + vy, originY);
+        }
+        // Failsafe
+        setMobStatus(mob, WANDERING, -1, 0);
+    }
+
+    static public String join(Object... args) {
+        return Stream.of(args).map(String::valueOf).collect(Collectors.joining(" "));
+    }
+
+    private boolean insideMap(int e) {
+        double x = store.x[e];
+        double y = store.y[e];
+        return x >= -config.MAP_LIMIT && x <= config.MAP_WIDTH + config.MAP_LIMIT
+            && y >= -config.MAP_LIMIT && y <= config.MAP_HEIGHT + config.MAP_LIMIT;
+    }
+
+    private boolean insideVisibleMap(int e) {
+        double x = store.x[e];
+        double y = store.y[e];
+        return x >= 0 && x <= config.MAP_WIDTH && y >= 0 && y <= config.MAP_HEIGHT;
+    }
+
+    boolean insideVisibleMap(Vector p) {
+        return p.withinBounds(0, 0, config.MAP_WIDTH, config.MAP_HEIGHT);
+    }
+
+    /**
+     * Computes the final scores, adding the tie-break explanation to the game summary.
+     *
+     * @return the score of each player
+     */
+    public int[] computeScores() {
+        int[] scores = new int[playerCount];
+        tie = false;
+        if (players.size() == 2) {
+            PlayerState a = players.get(0);
+            PlayerState b = players.get(1);
+            if (a.isActive() && !b.isActive()) {
+                scores[0] = 1;
+                scores[1] = 0;
+            } else if (!a.isActive() && b.isActive()) {
+                scores[0] = 0;
+                scores[1] = 1;
+            } else if (a.getBaseHealth() != b.getBaseHealth() || !config.ENABLE_TIE_BREAK) {
+                scores[0] = a.getBaseHealth();
+                scores[1] = b.getBaseHealth();
+            } else {
+                // Tie breaker
+                tie = true;
+                scores[0] = a.getManaGainedOutsideOfBase();
+                scores[1] = b.getManaGainedOutsideOfBase();
+                if (a.getManaGainedOutsideOfBase() == b.getManaGainedOutsideOfBase()) {
+                    gameSummary.add("Tie!");
+                } else {
+                    PlayerState winner = a.getManaGainedOutsideOfBase() > b.getManaGainedOutsideOfBase() ? a : b;
+                    gameSummary.add(
+                        winner.getNicknameToken() +
+                            " won the game because their heroes gained more mana outside of their base:"
+                    );
+                    gameSummary.add(a.getNicknameToken() + ": " + a.getManaGainedOutsideOfBase() + " mana");
+                    gameSummary.add(b.getNicknameToken() + ": " + b.getManaGainedOutsideOfBase() + " mana");
+
+                }
+            }
+        } else {
+            for (PlayerState p : players) {
+                scores[p.getIndex()] = p.getBaseHealth();
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * @return whether the last call to {@link #computeScores()} was settled by the tie-break
+     */
+    public boolean isTie() {
+        return tie;
+    }
+}
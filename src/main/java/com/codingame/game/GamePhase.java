@@ -0,0 +1,18 @@
+package com.codingame.game;
+
+/**
+ * Steps of the resolution of a turn, once the commands of the players have been handled, in the order they are performed.
+ */
+public enum GamePhase {
+    CONTROL,
+    SHIELD,
+    MOVE_HEROES,
+    COMBAT,
+    PUSH,
+    MOVE_MOBS,
+    SHIELD_DECAY,
+    SPAWN,
+    MANA_GAIN;
+
+    static final GamePhase[] ALL = values();
+}
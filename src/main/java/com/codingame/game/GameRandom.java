@@ -0,0 +1,46 @@
+package com.codingame.game;
+
+import java.util.Random;
+
+/**
+ * {@link Random} whose state can be read and set, for {@link GameEngine#snapshot()}. It produces the same sequence as
+ * <code>new Random(seed)</code>: {@link #next(int)} runs the same linear congruential generator, on a field instead of the private seed.
+ * <p>
+ * {@link #nextGaussian()} keeps a second value between calls that is not part of the state, so it must not be used.
+ */
+public class GameRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        super(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    long getState() {
+        return state;
+    }
+
+    void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Starts over the sequence of the given seed, as a new generator would.
+     */
+    void reseed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+}
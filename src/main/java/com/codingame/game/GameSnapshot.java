@@ -0,0 +1,35 @@
+package com.codingame.game;
+
+/**
+ * State of a {@link GameEngine} at some point of the game, as flat copies of its arrays and counters. Search bots take one with
+ * {@link GameEngine#snapshot()} and restore it after each rollout; {@link GameEngine#snapshot(GameSnapshot)} reuses it for the next turn
+ * without allocating.
+ * <p>
+ * Only valid for the engine that took it: cached mob statuses refer to its players.
+ */
+public class GameSnapshot {
+
+    final GameEngine engine;
+    int turn;
+    boolean turnStarted;
+    long randomState;
+    int idCount;
+    int lastSpawn;
+    double currentMaxHealth;
+    final EntityStore store;
+    final PlayerState[] players;
+
+    GameSnapshot(GameEngine engine) {
+        this.engine = engine;
+        Configuration config = engine.getConfiguration();
+        store = new EntityStore(64, engine.playerCount * config.HEROES_PER_PLAYER);
+        players = new PlayerState[engine.playerCount];
+        for (int i = 0; i < players.length; ++i) {
+            players[i] = new PlayerState(config, i);
+        }
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+}
@@ -1,24 +1,40 @@
 package com.codingame.game;
 
 import com.codingame.game.action.Action;
+import com.codingame.game.action.ActionType;
 
-public class Hero extends GameEntity {
+/**
+ * Intent and message of a hero. Its physical state lives in the {@link EntityStore}, at <code>slot</code>.
+ */
+public class Hero {
+    int id;
+    int slot;
     int index;
-    Player owner;
+    PlayerState owner;
     double rotation;
     Action intent;
     String message;
+    /** Reused for the intent of every turn */
+    private final Action action = new Action(ActionType.IDLE);
 
-    public Hero(int index, Vector position, Player owner, double rotation) {
-        super(position, owner.getIndex());
+    public Hero(int id, int slot, int index, PlayerState owner, double rotation) {
+        this.id = id;
+        this.slot = slot;
         this.index = index;
         this.owner = owner;
         this.rotation = rotation;
         this.intent = Action.IDLE;
     }
 
-    @Override
-    protected Player getOwner() {
+    Action newIntent(ActionType type) {
+        return action.reset(type);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    protected PlayerState getOwner() {
         return owner;
     }
 
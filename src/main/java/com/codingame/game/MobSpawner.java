@@ -1,56 +1,71 @@
 package com.codingame.game;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Random;
 
 public class MobSpawner {
 
+    private Configuration config;
     private Random random;
+    private EntityIdAllocator ids;
     private SpawnLocation[] spawnLocations;
     private double maxDirectionDelta;
     private int spawnRate;
     private int lastSpawn;
-    private double currentMaxHealth = Configuration.MOB_STARTING_MAX_ENERGY;
+    private double currentMaxHealth;
 
-    public MobSpawner(Random random, SpawnLocation[] spawnLocations, double maxDirectionDelta, int spawnRate) {
+    public MobSpawner(Configuration config, Random random, EntityIdAllocator ids, SpawnLocation[] spawnLocations, double maxDirectionDelta, int spawnRate) {
+        this.config = config;
         this.random = random;
+        this.ids = ids;
 
         this.spawnLocations = spawnLocations;
         this.maxDirectionDelta = maxDirectionDelta;
         this.spawnRate = spawnRate;
 
         lastSpawn = -spawnRate;
+        currentMaxHealth = config.MOB_STARTING_MAX_ENERGY;
     }
 
-    List<Mob> update(int turn) {
+    /**
+     * Adds the mobs spawning on this turn to the store.
+     */
+    void update(int turn, EntityStore store) {
         // It's the end of the game, help the random generate a suitably epic final frame
         boolean suddenDeath = turn >= 200;
 
         if (turn - lastSpawn >= spawnRate) {
             lastSpawn = turn;
-            return spawn(suddenDeath);
+            spawn(suddenDeath, store);
         }
-        return Collections.emptyList();
     }
 
-    private Vector opposite(Vector v) {
-        return new Vector(Configuration.MAP_WIDTH - v.getX(), Configuration.MAP_HEIGHT - v.getY());
+    int getLastSpawn() {
+        return lastSpawn;
+    }
+
+    double getCurrentMaxHealth() {
+        return currentMaxHealth;
     }
 
-    private List<Mob> spawn(boolean suddenDeath) {
-        List<Mob> newMobs = new ArrayList<>();
+    void restore(int lastSpawn, double currentMaxHealth) {
+        this.lastSpawn = lastSpawn;
+        this.currentMaxHealth = currentMaxHealth;
+    }
+
+    private Vector opposite(Vector v) {
+        return new Vector(config.MAP_WIDTH - v.getX(), config.MAP_HEIGHT - v.getY());
+    }
 
+    private void spawn(boolean suddenDeath, EntityStore store) {
         for (SpawnLocation pairToUse : spawnLocations) {
             Vector suddenDeathTarget = null;
 
             if (suddenDeath) {
-                int tx = random.nextInt(Configuration.BASE_ATTRACTION_RADIUS);
-                int ty = random.nextInt(Configuration.BASE_ATTRACTION_RADIUS);
+                int tx = random.nextInt(config.BASE_ATTRACTION_RADIUS);
+                int ty = random.nextInt(config.BASE_ATTRACTION_RADIUS);
                 if (random.nextBoolean()) {
-                    tx = Configuration.MAP_WIDTH - tx;
-                    ty = Configuration.MAP_HEIGHT - ty;
+                    tx = config.MAP_WIDTH - tx;
+                    ty = config.MAP_HEIGHT - ty;
                 }
                 suddenDeathTarget = new Vector(tx, ty);
             }
@@ -59,20 +74,19 @@ public class MobSpawner {
             for (int i = 0; i < 2; ++i) {
                 Vector location = i == 0 ? pairToUse.position : pairToUse.symetry;
                 Vector direction = i == 0 ? pairToUse.direction : pairToUse.direction.symmetric();
-                Mob mob = new Mob(location, (int) currentMaxHealth);
+                int mob = store.addMob(ids.next(), location.getX(), location.getY(), (int) currentMaxHealth);
+                Vector speed;
                 if (suddenDeath) {
-                    Vector v = new Vector(location, i == 0 ? suddenDeathTarget : opposite(suddenDeathTarget)).normalize()
-                        .mult(Configuration.MOB_MOVE_SPEED).truncate();
-                    mob.setSpeed(v);
+                    speed = new Vector(location, i == 0 ? suddenDeathTarget : opposite(suddenDeathTarget)).normalize()
+                        .mult(config.MOB_MOVE_SPEED).truncate();
                 } else {
-                    mob.setSpeed(direction.rotate(directionDelta).normalize().mult(Configuration.MOB_MOVE_SPEED).truncate());
+                    speed = direction.rotate(directionDelta).normalize().mult(config.MOB_MOVE_SPEED).truncate();
                 }
-                newMobs.add(mob);
+                store.setSpeed(mob, speed.getX(), speed.getY());
             }
 
         }
-        currentMaxHealth += Configuration.MOB_GROWTH_MAX_ENERGY;
-        return newMobs;
+        currentMaxHealth += config.MOB_GROWTH_MAX_ENERGY;
     }
 
 }
@@ -1,27 +1,22 @@
 package com.codingame.game;
 
-public class MobStatus {
-    int turns;
-    Player target;
-    int state;
+/**
+ * Threat of a mob as sent to a player, from the status predicted into {@link EntityStore}.
+ */
+public final class MobStatus {
 
     static final int YOU = 1;
     static final int ENEMY = 2;
     static final int NEITHER = 0;
 
-    public MobStatus(int state, Player target, int turns) {
-        this.turns = turns;
-        this.target = target;
-        this.state = state;
+    private MobStatus() {
     }
 
-    public String toStringFor(Player player) {
-        return String.format(
-            "%d %d",
-            state,
-            target == null ? NEITHER : (target == player ? YOU : ENEMY)
-
-        );
+    /**
+     * @param target
+     *            index of the player whose base the mob heads for, or -1
+     */
+    static int threatFor(int target, int playerIndex) {
+        return target < 0 ? NEITHER : target == playerIndex ? YOU : ENEMY;
     }
-
 }
@@ -0,0 +1,179 @@
+package com.codingame.game;
+
+import java.util.Arrays;
+
+/**
+ * Writes what a player sees of the game into a float buffer, for policies: the same entities and values as its input lines, under the
+ * same fog rules (its heroes, and what is within the view radius of its base or of one of its heroes), without building any text.
+ * Encoding does not allocate nor change the game: it reads the mob statuses the engine predicts when a turn begins. An encoder holds no
+ * state, so one encoder can serve games stepped on several threads.
+ * <p>
+ * An observation is made of {@value #GLOBAL_FEATURES} global features (turn, base health and mana of the player then of its opponent),
+ * then {@value #ENTITY_FEATURES} features per entity slot, then optional spatial planes. Entity slots hold the player's heroes, then
+ * the opposing heroes it sees, then the mobs it sees in spawn order; slots past the last entity are zero, and mobs that do not fit are
+ * left out. Their features are presence, whether the entity is an own hero, an opposing hero or a mob, position, speed, health, shield
+ * duration, whether it is controlled, whether it is heading for a base, and whether it threatens the player or its opponent. Heroes have
+ * no speed nor health, as in the input lines.
+ * <p>
+ * Planes split the map into a coarse grid. Each of the {@value #PLANES} planes counts, per cell, the player's heroes, the opposing
+ * heroes, the mobs, the health of the mobs, and the mobs threatening the player and its opponent.
+ * <p>
+ * Coordinates are seen from the side of the player: for player 1 they are mirrored through the center of the map, so that both players
+ * see their base in the top left corner.
+ */
+public class ObservationEncoder {
+
+    public static final int GLOBAL_FEATURES = 5;
+    public static final int ENTITY_FEATURES = 14;
+    public static final int PLANES = 6;
+
+    private static final int OWN_HERO_PLANE = 0;
+    private static final int OPPONENT_HERO_PLANE = 1;
+    private static final int MOB_PLANE = 2;
+    private static final int MOB_HEALTH_PLANE = 3;
+    private static final int THREAT_PLANE = 4;
+    private static final int OPPONENT_THREAT_PLANE = 5;
+
+    private static final float MANA_SCALE = 100;
+
+    private final Configuration config;
+    private final int entitySlots;
+    private final int columns, rows;
+    private final int size;
+
+    /**
+     * @param entitySlots
+     *            number of entities in an observation, heroes included
+     * @param columns
+     *            width of the grid of the planes, 0 for no planes
+     * @param rows
+     *            height of the grid of the planes
+     */
+    public ObservationEncoder(Configuration config, int entitySlots, int columns, int rows) {
+        this.config = config;
+        this.entitySlots = entitySlots;
+        this.columns = columns;
+        this.rows = columns == 0 ? 0 : rows;
+        this.size = GLOBAL_FEATURES + entitySlots * ENTITY_FEATURES + PLANES * this.columns * this.rows;
+    }
+
+    /**
+     * @return the number of floats of an observation
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getEntitySlots() {
+        return entitySlots;
+    }
+
+    /**
+     * Encodes the view of a player at the start of the current turn, which must have begun, see {@link GameEngine#beginTurn()}.
+     *
+     * @param out
+     *            receives {@link #getSize()} floats from <code>offset</code>
+     * @param ids
+     *            receives the id of the entity of each slot, or -1, from <code>idOffset</code>, or is <code>null</code>
+     */
+    public void encode(GameEngine engine, int playerIndex, float[] out, int offset, int[] ids, int idOffset) {
+        if (!engine.isTurnStarted()) {
+            throw new IllegalStateException("The turn has not begun");
+        }
+        boolean[] visible = engine.getVisibility(playerIndex);
+        EntityStore store = engine.getStore();
+        PlayerState me = engine.getPlayer(playerIndex);
+        PlayerState opponent = engine.getPlayer(1 - playerIndex);
+        boolean mirrored = playerIndex == 1;
+        Arrays.fill(out, offset, offset + size, 0);
+
+        int o = offset;
+        out[o++] = (float) engine.getTurn() / GameEngine.MAX_TURNS;
+        out[o++] = (float) me.getBaseHealth() / config.STARTING_BASE_HEALTH;
+        out[o++] = me.getMana() / MANA_SCALE;
+        out[o++] = (float) opponent.getBaseHealth() / config.STARTING_BASE_HEALTH;
+        out[o++] = opponent.getMana() / MANA_SCALE;
+
+        int planes = offset + GLOBAL_FEATURES + entitySlots * ENTITY_FEATURES;
+        int slot = 0;
+        for (int pass = 0; pass < 3; ++pass) {
+            int from = pass == 2 ? store.getHeroCount() : 0;
+            int to = pass == 2 ? store.size() : store.getHeroCount();
+            for (int e = from; e < to; ++e) {
+                if (!visible[e] || pass < 2 && (store.owner[e] == playerIndex) != (pass == 0)) {
+                    continue;
+                }
+                int threat = pass == 2 ? MobStatus.threatFor(store.statusTarget[e], playerIndex) : MobStatus.NEITHER;
+                if (columns > 0) {
+                    addToPlanes(store, e, pass, threat, mirrored, out, planes);
+                }
+                if (slot < entitySlots) {
+                    encodeEntity(store, e, pass, threat, mirrored, out, offset + GLOBAL_FEATURES + slot * ENTITY_FEATURES);
+                    if (ids != null) {
+                        ids[idOffset + slot] = store.id[e];
+                    }
+                    slot++;
+                }
+            }
+        }
+        if (ids != null) {
+            Arrays.fill(ids, idOffset + slot, idOffset + entitySlots, -1);
+        }
+    }
+
+    /**
+     * @param kind
+     *            0 for an own hero, 1 for an opposing one, 2 for a mob
+     */
+    private void encodeEntity(EntityStore store, int e, int kind, int threat, boolean mirrored, float[] out, int o) {
+        out[o++] = 1;
+        out[o++] = kind == 0 ? 1 : 0;
+        out[o++] = kind == 1 ? 1 : 0;
+        out[o++] = kind == 2 ? 1 : 0;
+        // Input lines truncate positions and speeds
+        out[o++] = (float) viewX((int) store.x[e], mirrored) / config.MAP_WIDTH;
+        out[o++] = (float) viewY((int) store.y[e], mirrored) / config.MAP_HEIGHT;
+        if (kind == 2) {
+            out[o++] = (float) (mirrored ? -(int) store.vx[e] : (int) store.vx[e]) / config.MOB_MOVE_SPEED;
+            out[o++] = (float) (mirrored ? -(int) store.vy[e] : (int) store.vy[e]) / config.MOB_MOVE_SPEED;
+            out[o++] = (float) store.health[e] / config.MOB_STARTING_MAX_ENERGY;
+        } else {
+            o += 3;
+        }
+        out[o++] = (float) store.shieldDuration[e] / config.SPELL_PROTECT_DURATION;
+        out[o++] = store.isControlled(e) ? 1 : 0;
+        if (kind == 2) {
+            out[o++] = store.statusState[e];
+            out[o++] = threat == MobStatus.YOU ? 1 : 0;
+            out[o++] = threat == MobStatus.ENEMY ? 1 : 0;
+        }
+    }
+
+    private void addToPlanes(EntityStore store, int e, int kind, int threat, boolean mirrored, float[] out, int planes) {
+        int column = Math.min(columns - 1, viewX((int) store.x[e], mirrored) * columns / (config.MAP_WIDTH + 1));
+        int row = Math.min(rows - 1, viewY((int) store.y[e], mirrored) * rows / (config.MAP_HEIGHT + 1));
+        int cell = planes + row * columns + column;
+        int planeSize = columns * rows;
+        if (kind == 0) {
+            out[cell + OWN_HERO_PLANE * planeSize]++;
+        } else if (kind == 1) {
+            out[cell + OPPONENT_HERO_PLANE * planeSize]++;
+        } else {
+            out[cell + MOB_PLANE * planeSize]++;
+            out[cell + MOB_HEALTH_PLANE * planeSize] += (float) store.health[e] / config.MOB_STARTING_MAX_ENERGY;
+            if (threat == MobStatus.YOU) {
+                out[cell + THREAT_PLANE * planeSize]++;
+            } else if (threat == MobStatus.ENEMY) {
+                out[cell + OPPONENT_THREAT_PLANE * planeSize]++;
+            }
+        }
+    }
+
+    private int viewX(int x, boolean mirrored) {
+        return mirrored ? config.MAP_WIDTH - x : x;
+    }
+
+    private int viewY(int y, boolean mirrored) {
+        return mirrored ? config.MAP_HEIGHT - y : y;
+    }
+}
@@ -0,0 +1,139 @@
+package com.codingame.game;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rule-side state of a player: heroes, mana and base health. Unlike {@link Player}, it does not need a game manager and can be used in
+ * headless simulations.
+ */
+public class PlayerState {
+
+    private Configuration config;
+    private int index;
+    List<Hero> heroes = new ArrayList<>();
+    private int mana;
+    private boolean manaChanged = true;
+    private boolean baseHealthChanged = true;
+    private int baseHealth;
+    public Set<Integer> spotted = new HashSet<>();
+    private int manaGainedOutsideOfBase = 0;
+    private boolean active = true;
+    private String deactivationReason;
+
+    public PlayerState(Configuration config, int index) {
+        this.config = config;
+        this.index = index;
+        this.mana = config.STARTING_MANA;
+        this.baseHealth = config.STARTING_BASE_HEALTH;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getNicknameToken() {
+        return "$" + index;
+    }
+
+    public List<Hero> getHeroes() {
+        return heroes;
+    }
+
+    public void addHero(Hero hero) {
+        heroes.add(hero);
+    }
+
+    public void gainMana(int amount, int amountOutsideOfBase) {
+        mana += amount;
+        manaGainedOutsideOfBase += amountOutsideOfBase;
+        if (config.MAX_MANA > 0) {
+            if (mana > config.MAX_MANA) {
+                mana = config.MAX_MANA;
+            }
+            if (manaGainedOutsideOfBase > config.MAX_MANA) {
+                manaGainedOutsideOfBase = config.MAX_MANA;
+            }
+        }
+        manaChanged = true;
+    }
+
+    public int getMana() {
+        return mana;
+    }
+
+    public boolean manaHasChanged() {
+        return manaChanged;
+    }
+
+    public void resetViewData() {
+        manaChanged = false;
+        baseHealthChanged = false;
+    }
+
+    public void spendMana(int amount) {
+        mana -= amount;
+        manaChanged = true;
+    }
+
+    public int getBaseHealth() {
+        return baseHealth;
+    }
+
+    public int getManaGainedOutsideOfBase() {
+        return manaGainedOutsideOfBase;
+    }
+
+    public void damageBase() {
+        this.baseHealth--;
+        if (this.baseHealth < 0) {
+            this.baseHealth = 0;
+        }
+        baseHealthChanged = true;
+    }
+
+    public boolean baseHealthHasChanged() {
+        return baseHealthChanged;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void deactivate(String reason) {
+        active = false;
+        deactivationReason = reason;
+    }
+
+    public String getDeactivationReason() {
+        return deactivationReason;
+    }
+
+    /**
+     * Copies the mana, base health and status of another state of the same player. Heroes are not copied, their physical state lives in
+     * the {@link EntityStore}.
+     */
+    void copyFrom(PlayerState other) {
+        copyStatusFrom(other);
+        if (!spotted.equals(other.spotted)) {
+            spotted.clear();
+            spotted.addAll(other.spotted);
+        }
+    }
+
+    /**
+     * Same as {@link #copyFrom(PlayerState)}, without the spotted mobs.
+     */
+    void copyStatusFrom(PlayerState other) {
+        mana = other.mana;
+        manaChanged = other.manaChanged;
+        baseHealthChanged = other.baseHealthChanged;
+        baseHealth = other.baseHealth;
+        manaGainedOutsideOfBase = other.manaGainedOutsideOfBase;
+        active = other.active;
+        deactivationReason = other.deactivationReason;
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.codingame.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves {@link BatchEnvironment}s to a trainer running in another process through a memory-mapped file, instead of text over pipes.
+ * The file holds a header and a ring of slots, each with its own batch of games: the trainer writes the actions of a slot and bumps its
+ * request sequence, the bridge steps the games of the slot, writes their outputs in place and bumps its response sequence. While the
+ * bridge steps a slot, the trainer can compute the actions of another.
+ * <p>
+ * All values are little-endian. The header, at offset 0:
+ *
+ * <pre>
+ *  0 int magic           0x52445053 ("SPDR")
+ *  4 int version         1
+ *  8 int state           0 starting, 1 ready, 2 closed, written by the bridge
+ * 12 int slotCount
+ * 16 int envsPerSlot
+ * 20 int heroesPerPlayer
+ * 24 int observationSize floats per player of each game
+ * 28 int entitySlots     entity ids per player of each game
+ * 32 int slotSize        bytes
+ * 36 int slotsOffset     offset of the first slot
+ * 40 int closeRequest    set to 1 by the trainer to stop the bridge
+ * </pre>
+ *
+ * Each slot, at <code>slotsOffset + i * slotSize</code>, holds its sequences on separate cache lines, then arrays laid out as the
+ * buffers of {@link BatchEnvironment}:
+ *
+ * <pre>
+ *   0 long  requestSequence  written by the trainer once the actions are written
+ *   8 int   command          0 step, 1 reset
+ *  64 long  responseSequence written by the bridge once the outputs are written
+ * 128 int   actions[envsPerSlot * 2 * heroesPerPlayer * 4]   type, x, y, target id, see BatchEnvironment
+ *     float observations[envsPerSlot * 2 * observationSize]
+ *     int   entityIds[envsPerSlot * 2 * entitySlots]
+ *     float rewards[envsPerSlot * 2]
+ *     int   dones[envsPerSlot]
+ *     int   winners[envsPerSlot]
+ * </pre>
+ *
+ * Once the state is ready, every slot holds the first observations of its games with a response sequence of 0. To step a slot, the
+ * trainer writes the actions and command, then the next request sequence, and waits for the response sequence to reach it. Put the
+ * file on a memory file system such as <code>/dev/shm</code> so that nothing reaches a disk.
+ * <p>
+ * Both sides rely on this ordering, as the mapping is plain memory without any lock:
+ * <ul>
+ * <li>the trainer writes the actions and command of a slot before its request sequence, and reads the outputs only after it sees the
+ * response sequence;</li>
+ * <li>the bridge reads the request sequence after a load fence at every check, then, once it changed, a load fence again before the
+ * actions and command; it writes the outputs, then a store fence, then the response sequence;</li>
+ * <li>the bridge writes the header, then a store fence, then the ready state, and reads the close request after a load fence at every
+ * check, so that it sees the trainer's write.</li>
+ * </ul>
+ * The fences are those of {@link MemoryFences}. The Python client writes each sequence with a single aligned 8-byte store, which is
+ * never torn, but emits no fence: that is enough on x86-64, which keeps stores in order, while a client on a weaker memory model such
+ * as ARM has to fence before writing the request sequence.
+ */
+public class SharedMemoryBridge implements AutoCloseable {
+
+    public static final int MAGIC = 0x52445053;
+    public static final int VERSION = 1;
+
+    public static final int STARTING = 0;
+    public static final int READY = 1;
+    public static final int CLOSED = 2;
+
+    public static final int COMMAND_STEP = 0;
+    public static final int COMMAND_RESET = 1;
+
+    private static final int STATE_OFFSET = 8;
+    private static final int CLOSE_REQUEST_OFFSET = 40;
+    private static final int HEADER_SIZE = 64;
+    private static final int REQUEST_SEQUENCE = 0;
+    private static final int COMMAND = 8;
+    private static final int RESPONSE_SEQUENCE = 64;
+    private static final int SLOT_ARRAYS = 128;
+
+    private static final int SPINS = 1000;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final Slot[] slots;
+
+    private class Slot {
+        final int offset;
+        final BatchEnvironment environment;
+        final int[] actions;
+        final IntBuffer actionView;
+        final FloatBuffer observationView;
+        final IntBuffer entityIdView;
+        final FloatBuffer rewardView;
+        final IntBuffer doneView;
+        final IntBuffer winnerView;
+        final int[] dones;
+        long handled;
+
+        Slot(int offset, BatchEnvironment environment) {
+            this.offset = offset;
+            this.environment = environment;
+            actions = new int[environment.getActionsLength()];
+            int position = offset + SLOT_ARRAYS;
+            actionView = intView(position, actions.length);
+            position += actions.length * 4;
+            observationView = floatView(position, environment.getObservations().length);
+            position += environment.getObservations().length * 4;
+            entityIdView = intView(position, environment.getEntityIds().length);
+            position += environment.getEntityIds().length * 4;
+            rewardView = floatView(position, environment.getRewards().length);
+            position += environment.getRewards().length * 4;
+            doneView = intView(position, environment.getEnvCount());
+            position += environment.getEnvCount() * 4;
+            winnerView = intView(position, environment.getEnvCount());
+            dones = new int[environment.getEnvCount()];
+        }
+
+        /**
+         * @return whether a request was pending
+         */
+        boolean poll() {
+            MemoryFences.loadFence();
+            long request = buffer.getLong(offset + REQUEST_SEQUENCE);
+            if (request == handled) {
+                return false;
+            }
+            MemoryFences.loadFence();
+            actionView.clear();
+            actionView.get(actions);
+            if (buffer.getInt(offset + COMMAND) == COMMAND_RESET) {
+                environment.reset();
+            } else {
+                environment.step(actions);
+            }
+            writeOutputs();
+            MemoryFences.storeFence();
+            buffer.putLong(offset + RESPONSE_SEQUENCE, request);
+            handled = request;
+            return true;
+        }
+
+        void writeOutputs() {
+            observationView.clear();
+            observationView.put(environment.getObservations());
+            entityIdView.clear();
+            entityIdView.put(environment.getEntityIds());
+            rewardView.clear();
+            rewardView.put(environment.getRewards());
+            boolean[] done = environment.getDones();
+            for (int i = 0; i < dones.length; ++i) {
+                dones[i] = done[i] ? 1 : 0;
+            }
+            doneView.clear();
+            doneView.put(dones);
+            winnerView.clear();
+            winnerView.put(environment.getWinners());
+        }
+    }
+
+    /**
+     * Creates the file, or overwrites it, and starts the games of every slot. Slot <code>i</code> plays the seeds from
+     * <code>firstSeed + i * 2^32</code>.
+     */
+    public SharedMemoryBridge(File path, Configuration config, int slotCount, int envsPerSlot, ObservationEncoder encoder, long firstSeed)
+        throws IOException {
+        int heroesPerPlayer = config.HEROES_PER_PLAYER;
+        int players = BatchEnvironment.PLAYER_COUNT;
+        long arrays = 4L * envsPerSlot * players * (heroesPerPlayer * BatchEnvironment.ACTION_SIZE + encoder.getSize()
+            + encoder.getEntitySlots() + 1) + 8L * envsPerSlot;
+        long slotSize = (SLOT_ARRAYS + arrays + 63) / 64 * 64;
+        long fileSize = HEADER_SIZE + slotSize * slotCount;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Shared buffer of " + fileSize + " bytes does not fit in a mapping");
+        }
+
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        file.setLength(fileSize);
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(STATE_OFFSET, STARTING);
+        buffer.putInt(12, slotCount);
+        buffer.putInt(16, envsPerSlot);
+        buffer.putInt(20, heroesPerPlayer);
+        buffer.putInt(24, encoder.getSize());
+        buffer.putInt(28, encoder.getEntitySlots());
+        buffer.putInt(32, (int) slotSize);
+        buffer.putInt(36, HEADER_SIZE);
+        buffer.putInt(CLOSE_REQUEST_OFFSET, 0);
+
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; ++i) {
+            BatchEnvironment environment = new BatchEnvironment(config, envsPerSlot, encoder, firstSeed + ((long) i << 32));
+            slots[i] = new Slot((int) (HEADER_SIZE + slotSize * i), environment);
+            slots[i].writeOutputs();
+        }
+        MemoryFences.storeFence();
+        buffer.putInt(STATE_OFFSET, READY);
+    }
+
+    private IntBuffer intView(int position, int length) {
+        return slice(position, length * 4).asIntBuffer();
+    }
+
+    private FloatBuffer floatView(int position, int length) {
+        return slice(position, length * 4).asFloatBuffer();
+    }
+
+    private ByteBuffer slice(int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private boolean isCloseRequested() {
+        MemoryFences.loadFence();
+        return buffer.getInt(CLOSE_REQUEST_OFFSET) != 0;
+    }
+
+    /**
+     * @param parallelism
+     *            number of threads stepping the games of a slot
+     */
+    public void setParallelism(int parallelism) {
+        for (Slot slot : slots) {
+            slot.environment.setParallelism(parallelism);
+        }
+    }
+
+    /**
+     * Handles the pending requests of every slot once.
+     *
+     * @return whether there was any
+     */
+    public boolean poll() {
+        boolean handled = false;
+        for (Slot slot : slots) {
+            handled |= slot.poll();
+        }
+        return handled;
+    }
+
+    /**
+     * Handles requests until the trainer asks to stop, spinning for a while after each, then sleeping between checks.
+     */
+    public void serve() {
+        int idle = 0;
+        while (!isCloseRequested()) {
+            if (poll()) {
+                idle = 0;
+            } else if (++idle < SPINS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        MemoryFences.storeFence();
+        buffer.putInt(STATE_OFFSET, CLOSED);
+        buffer.force();
+        file.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println(
+                "Usage: SharedMemoryBridge <file> [leagueLevel] [slotCount] [envsPerSlot] [entitySlots] [planeColumns] [planeRows] "
+                    + "[firstSeed] [parallelism]"
+            );
+            System.exit(2);
+        }
+        int leagueLevel = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int slotCount = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int envsPerSlot = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int entitySlots = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+        int columns = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        int rows = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+        long firstSeed = args.length > 7 ? Long.parseLong(args[7]) : 0;
+        int parallelism = args.length > 8 ? Integer.parseInt(args[8]) : 1;
+
+        Configuration config = new Configuration(new Properties(), leagueLevel);
+        ObservationEncoder encoder = new ObservationEncoder(config, entitySlots, columns, rows);
+        try (SharedMemoryBridge bridge = new SharedMemoryBridge(new File(args[0]), config, slotCount, envsPerSlot, encoder, firstSeed)) {
+            bridge.setParallelism(parallelism);
+            bridge.serve();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.codingame.game;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the slots of an {@link EntityStore}, for range queries. Entities outside of the covered area are kept in the border
+ * cells, so queries stay exact anywhere. The grid is a snapshot: it must be rebuilt after entities move.
+ */
+class SpatialGrid {
+
+    private final double minX, minY;
+    private final double cellSize;
+    private final int columns, rows;
+
+    /** Slots of cell <code>c</code> are <code>cellSlots[cellStart[c]]</code> to <code>cellSlots[cellStart[c + 1] - 1]</code>, ascending */
+    private final int[] cellStart;
+    private int[] cellSlots = new int[0];
+    private int[] slotCell = new int[0];
+    private int[] result = new int[0];
+
+    SpatialGrid(double minX, double minY, double maxX, double maxY, double cellSize) {
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+        cellStart = new int[columns * rows + 1];
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+
+    /**
+     * Indexes the current positions of all the slots of the store.
+     */
+    void build(EntityStore store) {
+        int size = store.size;
+        if (slotCell.length < size) {
+            int capacity = store.id.length;
+            slotCell = new int[capacity];
+            cellSlots = new int[capacity];
+            result = new int[capacity];
+        }
+        Arrays.fill(cellStart, 0);
+        for (int e = 0; e < size; ++e) {
+            int cell = row(store.y[e]) * columns + column(store.x[e]);
+            slotCell[e] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < columns * rows; ++c) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // Filling in slot order keeps each cell sorted. cellStart[c] serves as the insertion point, then is restored below.
+        for (int e = 0; e < size; ++e) {
+            cellSlots[cellStart[slotCell[e]]++] = e;
+        }
+        for (int c = columns * rows; c > 0; --c) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    /**
+     * Finds the slots within <code>range</code> of the given point, with the same test as {@link GameEngine}.
+     *
+     * @return the number of slots found, which are the first ones of {@link #getResult()} in ascending order
+     */
+    int query(EntityStore store, double x, double y, double range) {
+        int count = 0;
+        int fromColumn = column(x - range);
+        int toColumn = column(x + range);
+        int fromRow = row(y - range);
+        int toRow = row(y + range);
+        for (int r = fromRow; r <= toRow; ++r) {
+            for (int c = fromColumn; c <= toColumn; ++c) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+                    int e = cellSlots[k];
+                    double dx = x - store.x[e];
+                    double dy = y - store.y[e];
+                    if (dx * dx + dy * dy <= range * range) {
+                        result[count++] = e;
+                    }
+                }
+            }
+        }
+        if (fromColumn != toColumn || fromRow != toRow) {
+            Arrays.sort(result, 0, count);
+        }
+        return count;
+    }
+
+    int[] getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,279 @@
+package com.codingame.game;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Durations of each {@link GamePhase} of the turns of a game, and of the work the referee does around them. Enabled with the
+ * <code>spring2022.profile</code> system property: the referee then prints the histograms of each game to stderr, and the tournament
+ * their merge. When it is disabled, the engine holds no profiler and only checks for it.
+ * <p>
+ * The <code>spring2022.profile.allocations</code> property also records the bytes allocated by each of them, read from the allocation
+ * counter of the thread, both in histograms and turn by turn. The JVM does not count objects per thread, so only bytes are reported, which
+ * {@link #dump()} states; object counts need an allocation profiler, such as the <code>jdk.ObjectAllocationSample</code> events of a
+ * flight recording.
+ * <p>
+ * Sections do not nest, and a profiler is used by a single thread at a time, like its engine.
+ */
+public class TurnProfiler {
+
+    public static final boolean ALLOCATIONS = Boolean.getBoolean("spring2022.profile.allocations");
+    public static final boolean ENABLED = ALLOCATIONS || Boolean.getBoolean("spring2022.profile");
+
+    /** Work outside of the resolution of the turn */
+    public enum Section {
+        GAME_STATE,
+        HANDLE_COMMANDS,
+        FRAME_DATA
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+    /** Phases, then sections, in the rows of {@link #getTurnAllocations()} */
+    public static final int COLUMNS = GamePhase.ALL.length + SECTIONS.length;
+    private static final int TURNS = GameEngine.MAX_TURNS + 1;
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[GamePhase.ALL.length];
+    private final LatencyHistogram[] sections = new LatencyHistogram[SECTIONS.length];
+    /** Null unless allocations are recorded */
+    private final LatencyHistogram[] phaseAllocations;
+    private final LatencyHistogram[] sectionAllocations;
+    /** Bytes allocated by each column of each turn, and the number of games that played each turn; null unless allocations are recorded */
+    private final long[] turnAllocations;
+    private final int[] turnGames;
+    private final com.sun.management.ThreadMXBean threads;
+
+    private int turn;
+    private long startNanos;
+    private long startBytes;
+
+    public TurnProfiler() {
+        this(ALLOCATIONS);
+    }
+
+    /**
+     * @param allocations
+     *            whether to record allocated bytes too, ignored if the JVM cannot count them
+     */
+    public TurnProfiler(boolean allocations) {
+        for (int i = 0; i < phases.length; ++i) {
+            phases[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < sections.length; ++i) {
+            sections[i] = new LatencyHistogram();
+        }
+        threads = allocations ? allocationCounter() : null;
+        if (threads != null) {
+            phaseAllocations = new LatencyHistogram[phases.length];
+            sectionAllocations = new LatencyHistogram[sections.length];
+            for (int i = 0; i < phases.length; ++i) {
+                phaseAllocations[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < sections.length; ++i) {
+                sectionAllocations[i] = new LatencyHistogram();
+            }
+            turnAllocations = new long[TURNS * COLUMNS];
+            turnGames = new int[TURNS];
+        } else {
+            phaseAllocations = null;
+            sectionAllocations = null;
+            turnAllocations = null;
+            turnGames = null;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public boolean recordsAllocations() {
+        return threads != null;
+    }
+
+    /**
+     * Makes the next records count for the given turn, until the next call. Records before the first call count for turn 0.
+     */
+    public void beginTurn(int turn) {
+        this.turn = Math.min(turn, TURNS - 1);
+        if (turnGames != null) {
+            turnGames[this.turn] = 1;
+        }
+    }
+
+    /**
+     * Starts timing a phase or section, ended by the next call to <code>end</code>.
+     */
+    public void begin() {
+        if (threads != null) {
+            startBytes = allocatedBytes();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    public void end(GamePhase phase) {
+        long nanos = System.nanoTime() - startNanos;
+        phases[phase.ordinal()].record(nanos);
+        if (threads != null) {
+            long bytes = allocatedBytes() - startBytes;
+            phaseAllocations[phase.ordinal()].record(bytes);
+            turnAllocations[turn * COLUMNS + phase.ordinal()] += bytes;
+        }
+    }
+
+    public void end(Section section) {
+        long nanos = System.nanoTime() - startNanos;
+        sections[section.ordinal()].record(nanos);
+        if (threads != null) {
+            long bytes = allocatedBytes() - startBytes;
+            sectionAllocations[section.ordinal()].record(bytes);
+            turnAllocations[turn * COLUMNS + GamePhase.ALL.length + section.ordinal()] += bytes;
+        }
+    }
+
+    public LatencyHistogram get(GamePhase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public LatencyHistogram get(Section section) {
+        return sections[section.ordinal()];
+    }
+
+    /**
+     * @return the bytes allocated by each run of the phase, or <code>null</code> if allocations are not recorded
+     */
+    public LatencyHistogram getAllocations(GamePhase phase) {
+        return threads == null ? null : phaseAllocations[phase.ordinal()];
+    }
+
+    public LatencyHistogram getAllocations(Section section) {
+        return threads == null ? null : sectionAllocations[section.ordinal()];
+    }
+
+    /**
+     * @return the bytes allocated by each phase then each section of each turn, from turn 0 to the last one played, summed over the
+     *         merged games, or <code>null</code> if allocations are not recorded
+     */
+    public long[][] getTurnAllocations() {
+        if (threads == null) {
+            return null;
+        }
+        int turns = getTurnCount();
+        long[][] bytes = new long[turns][];
+        for (int t = 0; t < turns; ++t) {
+            bytes[t] = Arrays.copyOfRange(turnAllocations, t * COLUMNS, (t + 1) * COLUMNS);
+        }
+        return bytes;
+    }
+
+    private int getTurnCount() {
+        int turns = TURNS;
+        while (turns > 0 && turnGames[turns - 1] == 0) {
+            turns--;
+        }
+        return turns;
+    }
+
+    /**
+     * Adds the records of another profiler. Allocations are only merged if both record them.
+     */
+    public void merge(TurnProfiler other) {
+        for (int i = 0; i < phases.length; ++i) {
+            phases[i].merge(other.phases[i]);
+        }
+        for (int i = 0; i < sections.length; ++i) {
+            sections[i].merge(other.sections[i]);
+        }
+        if (threads != null && other.threads != null) {
+            for (int i = 0; i < phases.length; ++i) {
+                phaseAllocations[i].merge(other.phaseAllocations[i]);
+            }
+            for (int i = 0; i < sections.length; ++i) {
+                sectionAllocations[i].merge(other.sectionAllocations[i]);
+            }
+            for (int i = 0; i < turnAllocations.length; ++i) {
+                turnAllocations[i] += other.turnAllocations[i];
+            }
+            for (int t = 0; t < TURNS; ++t) {
+                turnGames[t] += other.turnGames[t];
+            }
+        }
+    }
+
+    /**
+     * @return one line per phase then section, with durations in microseconds, then the same for allocations in bytes if they are
+     *         recorded, followed by the mean bytes allocated by each of them per game at each turn
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-16s %8s %10s %9s %9s %9s %9s %9s%n", "time (us)", "count", "total", "mean", "p50", "p90", "p99", "max"));
+        for (GamePhase phase : GamePhase.ALL) {
+            appendLine(out, phase.name(), get(phase), 1e3);
+        }
+        for (Section section : SECTIONS) {
+            appendLine(out, section.name(), get(section), 1e3);
+        }
+        if (threads != null) {
+            out.append(String.format("%-16s %8s %10s %9s %9s %9s %9s %9s%n", "allocated (B)", "count", "total", "mean", "p50", "p90", "p99", "max"));
+            for (GamePhase phase : GamePhase.ALL) {
+                appendLine(out, phase.name(), getAllocations(phase), 1);
+            }
+            for (Section section : SECTIONS) {
+                appendLine(out, section.name(), getAllocations(section), 1);
+            }
+            appendTurns(out);
+        }
+        return out.toString();
+    }
+
+    private void appendTurns(StringBuilder out) {
+        out.append("allocated per turn (B, mean per game; the JVM only counts bytes per thread, ")
+            .append("record jdk.ObjectAllocationSample for objects)")
+            .append(System.lineSeparator());
+        out.append(String.format("%5s", "turn"));
+        for (GamePhase phase : GamePhase.ALL) {
+            out.append(String.format(" %15s", phase.name()));
+        }
+        for (Section section : SECTIONS) {
+            out.append(String.format(" %15s", section.name()));
+        }
+        out.append(System.lineSeparator());
+        for (int t = 0; t < getTurnCount(); ++t) {
+            if (turnGames[t] == 0) {
+                continue;
+            }
+            out.append(String.format("%5d", t));
+            for (int c = 0; c < COLUMNS; ++c) {
+                out.append(String.format(" %15d", turnAllocations[t * COLUMNS + c] / turnGames[t]));
+            }
+            out.append(System.lineSeparator());
+        }
+    }
+
+    private static void appendLine(StringBuilder out, String name, LatencyHistogram histogram, double unit) {
+        out.append(
+            String.format(
+                "%-16s %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getCount(),
+                histogram.getTotal() / unit,
+                histogram.getMean() / unit,
+                histogram.getValueAtQuantile(0.5) / unit,
+                histogram.getValueAtQuantile(0.9) / unit,
+                histogram.getValueAtQuantile(0.99) / unit,
+                histogram.getMax() / unit
+            )
+        );
+    }
+}
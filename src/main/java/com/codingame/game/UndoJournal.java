@@ -0,0 +1,161 @@
+package com.codingame.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Changes made to a game since each open mark, so that {@link GameEngine#undo()} only restores what changed. An entity is saved as a
+ * whole row of the store the first time it is modified after a mark, and spotted mobs as they are added. The counters of the engine, the
+ * random state and the player statuses are few, so they are saved at each mark.
+ * <p>
+ * Marks nest: undoing restores the state of the last open mark and closes it. Once warmed up, marking and undoing do not allocate.
+ */
+class UndoJournal {
+
+    /** State saved when a mark is opened */
+    static class Mark {
+        int turn;
+        boolean turnStarted;
+        long randomState;
+        int idCount;
+        int lastSpawn;
+        double currentMaxHealth;
+        int storeSize;
+        PlayerState[] players;
+
+        private int serial;
+        private int rowCount;
+        private int slotOfCount;
+        private int spottedCount;
+    }
+
+    private final Configuration config;
+    private final int playerCount;
+
+    private Mark[] marks = new Mark[0];
+    private int depth;
+    private int lastSerial;
+    /** Serial of the innermost open mark, 0 when there is none */
+    private int serial;
+
+    /** Saved entities, and the slot each was saved from */
+    private final EntityStore rows;
+    private int[] rowSlot = new int[64];
+    private int rowCount;
+    /** Serial of the mark for which each slot of the store was last saved */
+    private int[] savedSerial = new int[64];
+
+    /** Previous slots of entity ids */
+    private int[] slotOfIds = new int[64];
+    private int[] slotOfSlots = new int[64];
+    private int slotOfCount;
+
+    /** Mobs added to the spotted set of a player */
+    private int[] spottedPlayers = new int[64];
+    private int[] spottedIds = new int[64];
+    private int spottedCount;
+
+    UndoJournal(Configuration config, int playerCount, int maxControls) {
+        this.config = config;
+        this.playerCount = playerCount;
+        rows = new EntityStore(64, maxControls);
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Opens a mark, for the caller to fill with the state of the engine.
+     */
+    Mark open() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, Math.max(8, depth * 2));
+        }
+        Mark mark = marks[depth];
+        if (mark == null) {
+            mark = new Mark();
+            mark.players = new PlayerState[playerCount];
+            for (int i = 0; i < playerCount; ++i) {
+                mark.players[i] = new PlayerState(config, i);
+            }
+            marks[depth] = mark;
+        }
+        depth++;
+        mark.serial = serial = ++lastSerial;
+        mark.rowCount = rowCount;
+        mark.slotOfCount = slotOfCount;
+        mark.spottedCount = spottedCount;
+        return mark;
+    }
+
+    /**
+     * Puts the entities and spotted sets back as they were when the last mark was opened, and closes it.
+     *
+     * @return the closed mark, for the caller to restore the rest of the state
+     */
+    Mark close(EntityStore store, List<PlayerState> players) {
+        Mark mark = marks[--depth];
+        // In reverse, as a slot saved again after undoing an inner mark must end up with its first saved row
+        for (int k = rowCount - 1; k >= mark.rowCount; --k) {
+            store.copyRow(rows, k, rowSlot[k]);
+        }
+        rowCount = mark.rowCount;
+        for (int k = slotOfCount - 1; k >= mark.slotOfCount; --k) {
+            store.restoreSlotOf(slotOfIds[k], slotOfSlots[k]);
+        }
+        slotOfCount = mark.slotOfCount;
+        for (int k = spottedCount - 1; k >= mark.spottedCount; --k) {
+            players.get(spottedPlayers[k]).spotted.remove(spottedIds[k]);
+        }
+        spottedCount = mark.spottedCount;
+        store.size = mark.storeSize;
+        serial = depth > 0 ? marks[depth - 1].serial : 0;
+        return mark;
+    }
+
+    /**
+     * Closes all marks without restoring anything.
+     */
+    void clear() {
+        depth = 0;
+        serial = 0;
+        rowCount = 0;
+        slotOfCount = 0;
+        spottedCount = 0;
+    }
+
+    void saveRow(EntityStore store, int slot) {
+        if (slot >= savedSerial.length) {
+            savedSerial = Arrays.copyOf(savedSerial, Math.max(savedSerial.length * 2, slot + 1));
+        }
+        if (savedSerial[slot] == serial) {
+            return;
+        }
+        savedSerial[slot] = serial;
+        if (rowCount == rowSlot.length) {
+            rowSlot = Arrays.copyOf(rowSlot, rowCount * 2);
+        }
+        rows.ensureCapacity(rowCount + 1);
+        rows.copyRow(store, slot, rowCount);
+        rowSlot[rowCount++] = slot;
+    }
+
+    void saveSlotOf(int id, int slot) {
+        if (slotOfCount == slotOfIds.length) {
+            slotOfIds = Arrays.copyOf(slotOfIds, slotOfCount * 2);
+            slotOfSlots = Arrays.copyOf(slotOfSlots, slotOfCount * 2);
+        }
+        slotOfIds[slotOfCount] = id;
+        slotOfSlots[slotOfCount++] = slot;
+    }
+
+    void saveSpotted(int player, int id) {
+        if (spottedCount == spottedIds.length) {
+            spottedPlayers = Arrays.copyOf(spottedPlayers, spottedCount * 2);
+            spottedIds = Arrays.copyOf(spottedIds, spottedCount * 2);
+        }
+        spottedPlayers[spottedCount] = player;
+        spottedIds[spottedCount++] = id;
+    }
+}
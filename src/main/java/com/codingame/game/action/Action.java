@@ -22,6 +22,19 @@ public class Action {
     public Action(ActionType type) {
         this.type = type;
     }
+
+    /**
+     * Clears this action so it can be reused for another command.
+     *
+     * @return this action
+     */
+    public Action reset(ActionType type) {
+        this.type = type;
+        this.destination = null;
+        this.target = 0;
+        this.forced = false;
+        return this;
+    }
     
     public ActionType getType() {
         return type;
@@ -0,0 +1,36 @@
+package com.codingame.game.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A round trip with a bot: sending its input, running it and reading its output.
+ */
+@Name("spring2022.BotIo")
+@Label("Bot I/O")
+@Category("Spider Attack")
+@Description("Input sent to a bot and output read back")
+@Enabled(false)
+@StackTrace(false)
+public class BotIoEvent extends Event {
+
+    @Label("Turn")
+    public int turn;
+
+    @Label("Player")
+    public int player;
+
+    @Label("Input Lines")
+    public int inputLines;
+
+    @Label("Output Lines")
+    public int outputLines;
+
+    @Label("Timed Out")
+    public boolean timeout;
+}
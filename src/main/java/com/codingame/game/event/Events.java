@@ -0,0 +1,71 @@
+package com.codingame.game.event;
+
+/**
+ * Records the events of this package, when the JVM has a flight recorder and a recording enables them. Java 8 only has
+ * <code>jdk.jfr</code> from update 262 on: the events are only loaded, by {@link Recorder}, once it is found, so that the game still runs
+ * on older updates.
+ * <p>
+ * An event is begun by one of the <code>begin</code> methods, which return <code>null</code> without creating it unless a recording
+ * enables its type, and ended by the matching <code>end</code> method, which ignores <code>null</code>.
+ */
+public final class Events {
+
+    /** Whether <code>jdk.jfr</code> is there */
+    public static final boolean AVAILABLE = isAvailable();
+
+    private Events() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, Events.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static Object beginTurn() {
+        return AVAILABLE ? Recorder.beginTurn() : null;
+    }
+
+    public static void endTurn(Object event, int turn, int mobCount, int spellCasts, int attacks, int baseAttacks) {
+        if (event != null) {
+            Recorder.endTurn(event, turn, mobCount, spellCasts, attacks, baseAttacks);
+        }
+    }
+
+    public static Object beginPhase() {
+        return AVAILABLE ? Recorder.beginPhase() : null;
+    }
+
+    public static void endPhase(Object event, int turn, String phase, int mobCount) {
+        if (event != null) {
+            Recorder.endPhase(event, turn, phase, mobCount);
+        }
+    }
+
+    public static Object beginBotIo(int turn, int player, int inputLines) {
+        return AVAILABLE ? Recorder.beginBotIo(turn, player, inputLines) : null;
+    }
+
+    /**
+     * @param outputLines
+     *            number of lines read back, or -1 if the bot timed out
+     */
+    public static void endBotIo(Object event, int outputLines) {
+        if (event != null) {
+            Recorder.endBotIo(event, outputLines);
+        }
+    }
+
+    public static Object beginFrame() {
+        return AVAILABLE ? Recorder.beginFrame() : null;
+    }
+
+    public static void endFrame(Object event, int frame, boolean keyframe, int positions, int size) {
+        if (event != null) {
+            Recorder.endFrame(event, frame, keyframe, positions, size);
+        }
+    }
+}
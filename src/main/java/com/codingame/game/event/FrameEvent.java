@@ -0,0 +1,35 @@
+package com.codingame.game.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Serialization of a view frame.
+ */
+@Name("spring2022.Frame")
+@Label("Frame Serialization")
+@Category("Spider Attack")
+@Description("Binary encoding of a view frame")
+@Enabled(false)
+@StackTrace(false)
+public class FrameEvent extends Event {
+
+    @Label("Frame")
+    public int frame;
+
+    @Label("Keyframe")
+    public boolean keyframe;
+
+    @Label("Positions")
+    public int positions;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+}
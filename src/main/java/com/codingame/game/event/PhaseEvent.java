@@ -0,0 +1,30 @@
+package com.codingame.game.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A phase of the resolution of a turn, see {@link com.codingame.game.GamePhase}.
+ */
+@Name("spring2022.Phase")
+@Label("Phase")
+@Category("Spider Attack")
+@Description("Phase of the resolution of a turn")
+@Enabled(false)
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    @Label("Turn")
+    public int turn;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Mobs")
+    public int mobCount;
+}
@@ -0,0 +1,105 @@
+package com.codingame.game.event;
+
+import jdk.jfr.EventType;
+
+/**
+ * The only class that {@link Events} calls into <code>jdk.jfr</code> through, loaded once it knows the package is there.
+ */
+final class Recorder {
+
+    private static final EventType TURN = EventType.getEventType(TurnEvent.class);
+    private static final EventType PHASE = EventType.getEventType(PhaseEvent.class);
+    private static final EventType BOT_IO = EventType.getEventType(BotIoEvent.class);
+    private static final EventType FRAME = EventType.getEventType(FrameEvent.class);
+
+    private Recorder() {
+    }
+
+    static Object beginTurn() {
+        if (!TURN.isEnabled()) {
+            return null;
+        }
+        TurnEvent event = new TurnEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endTurn(Object begun, int turn, int mobCount, int spellCasts, int attacks, int baseAttacks) {
+        TurnEvent event = (TurnEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.turn = turn;
+            event.mobCount = mobCount;
+            event.spellCasts = spellCasts;
+            event.attacks = attacks;
+            event.baseAttacks = baseAttacks;
+            event.commit();
+        }
+    }
+
+    static Object beginPhase() {
+        if (!PHASE.isEnabled()) {
+            return null;
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endPhase(Object begun, int turn, String phase, int mobCount) {
+        PhaseEvent event = (PhaseEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.turn = turn;
+            event.phase = phase;
+            event.mobCount = mobCount;
+            event.commit();
+        }
+    }
+
+    static Object beginBotIo(int turn, int player, int inputLines) {
+        if (!BOT_IO.isEnabled()) {
+            return null;
+        }
+        BotIoEvent event = new BotIoEvent();
+        event.turn = turn;
+        event.player = player;
+        event.inputLines = inputLines;
+        event.begin();
+        return event;
+    }
+
+    static void endBotIo(Object begun, int outputLines) {
+        BotIoEvent event = (BotIoEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            if (outputLines < 0) {
+                event.timeout = true;
+            } else {
+                event.outputLines = outputLines;
+            }
+            event.commit();
+        }
+    }
+
+    static Object beginFrame() {
+        if (!FRAME.isEnabled()) {
+            return null;
+        }
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endFrame(Object begun, int frame, boolean keyframe, int positions, int size) {
+        FrameEvent event = (FrameEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = frame;
+            event.keyframe = keyframe;
+            event.positions = positions;
+            event.size = size;
+            event.commit();
+        }
+    }
+}
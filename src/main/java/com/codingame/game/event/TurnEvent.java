@@ -0,0 +1,36 @@
+package com.codingame.game.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A turn of the referee, from sending the input of the players to the end of its resolution.
+ */
+@Name("spring2022.Turn")
+@Label("Turn")
+@Category("Spider Attack")
+@Description("Turn of the referee, including the bots")
+@Enabled(false)
+@StackTrace(false)
+public class TurnEvent extends Event {
+
+    @Label("Turn")
+    public int turn;
+
+    @Label("Mobs")
+    public int mobCount;
+
+    @Label("Spell Casts")
+    public int spellCasts;
+
+    @Label("Hero Attacks")
+    public int attacks;
+
+    @Label("Base Attacks")
+    public int baseAttacks;
+}
@@ -0,0 +1,44 @@
+package com.codingame.view;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what a {@link BinaryWriter} wrote.
+ */
+public class BinaryReader {
+
+    private final byte[] buffer;
+    private int offset;
+
+    public BinaryReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() {
+        return buffer[offset++] & 0xFF;
+    }
+
+    public int readVarint() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer[offset++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public int readSignedVarint() {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() {
+        int length = readVarint();
+        String value = new String(buffer, offset, length, StandardCharsets.UTF_8);
+        offset += length;
+        return value;
+    }
+}
@@ -9,8 +9,14 @@ public class FrameViewData {
         public Integer health;
     }
 
+    /** Whether this frame holds all of the state: all positions, all values of the diffs and the spawn data of all entities */
+    public boolean keyframe;
+
     // States
+    /** Positions the viewer cannot extrapolate from the previous frames, see {@link PositionDeltas} */
     public Map<Integer, Coord> positions;
+    /** Entities of the previous frame that are gone */
+    public List<Integer> removed;
     public Map<Integer, String> messages;
     public List<Integer> controlled;
     public List<Integer> pushed;
@@ -26,4 +32,7 @@ public class FrameViewData {
     public List<Attack> attacks;
     public List<BaseAttack> baseAttacks;
     public List<SpellUse> spellUses;
+
+    // Keyframes only
+    public List<EntityData> entities;
 }
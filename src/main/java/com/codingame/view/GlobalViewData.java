@@ -13,4 +13,5 @@ public class GlobalViewData {
     public int baseViewRadius;
     public boolean enableSpells;
     public boolean enableFog;
+    public int keyframeInterval;
 }
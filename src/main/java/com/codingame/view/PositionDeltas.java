@@ -0,0 +1,103 @@
+package com.codingame.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Positions sent in the previous frames, to leave out of a frame the ones the viewer can extrapolate: an entity seen in the last frame
+ * keeps moving by its last displacement, or stays still if it is new. The viewer applies the same rule, see <code>Deserializer.ts</code>.
+ * <p>
+ * Must see every frame exactly once, in order. Entity ids are dense, so they index arrays.
+ */
+public class PositionDeltas {
+
+    private static final int NEVER = Integer.MIN_VALUE;
+
+    private int frame;
+    private boolean keyframe;
+    private int[] lastX = new int[0], lastY = new int[0], lastFrame = new int[0];
+    private int[] beforeX = new int[0], beforeY = new int[0], beforeFrame = new int[0];
+
+    /** Ids of the entities of the previous and current frames */
+    private int[] previousIds = new int[64];
+    private int previousCount;
+    private int[] currentIds = new int[64];
+    private int currentCount;
+
+    /**
+     * @param keyframe
+     *            whether the frame is a keyframe, from which the viewer can start decoding: all positions are sent and the entities do
+     *            not carry their displacement over to the next frame
+     */
+    public void beginFrame(boolean keyframe) {
+        this.keyframe = keyframe;
+        frame++;
+        int[] ids = previousIds;
+        previousIds = currentIds;
+        previousCount = currentCount;
+        currentIds = ids;
+        currentCount = 0;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < lastX.length) {
+            return;
+        }
+        int length = lastX.length;
+        int capacity = Math.max(length * 2, id + 64);
+        lastX = Arrays.copyOf(lastX, capacity);
+        lastY = Arrays.copyOf(lastY, capacity);
+        lastFrame = Arrays.copyOf(lastFrame, capacity);
+        beforeX = Arrays.copyOf(beforeX, capacity);
+        beforeY = Arrays.copyOf(beforeY, capacity);
+        beforeFrame = Arrays.copyOf(beforeFrame, capacity);
+        Arrays.fill(lastFrame, length, capacity, NEVER);
+        Arrays.fill(beforeFrame, length, capacity, NEVER);
+    }
+
+    /**
+     * Records the position of an entity in the current frame.
+     *
+     * @return whether the viewer can extrapolate it, so that it does not need to be sent
+     */
+    public boolean record(int id, int x, int y) {
+        ensureCapacity(id);
+        boolean extrapolated = false;
+        if (!keyframe && lastFrame[id] == frame - 1) {
+            int expectedX = lastX[id];
+            int expectedY = lastY[id];
+            if (beforeFrame[id] == frame - 2) {
+                expectedX += lastX[id] - beforeX[id];
+                expectedY += lastY[id] - beforeY[id];
+            }
+            extrapolated = expectedX == x && expectedY == y;
+        }
+        beforeX[id] = lastX[id];
+        beforeY[id] = lastY[id];
+        beforeFrame[id] = keyframe ? NEVER : lastFrame[id];
+        lastX[id] = x;
+        lastY[id] = y;
+        lastFrame[id] = frame;
+
+        if (currentCount == currentIds.length) {
+            currentIds = Arrays.copyOf(currentIds, currentCount * 2);
+        }
+        currentIds[currentCount++] = id;
+        return extrapolated;
+    }
+
+    /**
+     * @return the ids of the entities of the previous frame that were not recorded in this one
+     */
+    public List<Integer> endFrame() {
+        List<Integer> removed = new ArrayList<>();
+        for (int k = 0; k < previousCount; ++k) {
+            int id = previousIds[k];
+            if (lastFrame[id] != frame) {
+                removed.add(id);
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,264 @@
+package com.codingame.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.codingame.view.FrameViewData.EntityData;
+
+/**
+ * Binary frames of a game, as sent by the {@link ViewModule}, with access to the full state of any frame. Decoding a frame starts from
+ * the last keyframe before it, so it costs at most one keyframe interval of frames.
+ */
+public class Replay {
+
+    private final List<String> frames;
+    /** Indexes of the keyframes in <code>frames</code>, ascending */
+    private final int[] keyframes;
+
+    public Replay(List<String> frames) {
+        this.frames = frames;
+        int[] index = new int[frames.size()];
+        int count = 0;
+        for (int i = 0; i < frames.size(); ++i) {
+            if (isKeyframe(frames.get(i))) {
+                index[count++] = i;
+            }
+        }
+        keyframes = Arrays.copyOf(index, count);
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    public int[] getKeyframes() {
+        return keyframes.clone();
+    }
+
+    /**
+     * Reads the flags of a frame without decoding the rest of it.
+     */
+    static boolean isKeyframe(String frame) {
+        // The first 4 base64 characters hold the version and flags bytes
+        byte[] header = Base64.getDecoder().decode(frame.substring(1, 5));
+        checkVersion(header[0]);
+        return (header[1] & ViewModule.FLAG_KEYFRAME) != 0;
+    }
+
+    private static void checkVersion(int version) {
+        if (version != ViewModule.FRAME_FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported frame format version " + version);
+        }
+    }
+
+    /**
+     * Decodes a single frame as it was sent: positions only hold the ones that could not be extrapolated, diffs only hold changes.
+     */
+    public static FrameViewData decode(String frame) {
+        if (frame.isEmpty() || frame.charAt(0) != ViewModule.BINARY_FRAME_PREFIX) {
+            throw new IllegalArgumentException("Not a binary frame");
+        }
+        BinaryReader in = new BinaryReader(Base64.getDecoder().decode(frame.substring(1)));
+        checkVersion(in.readByte());
+        FrameViewData data = new FrameViewData();
+        data.keyframe = (in.readByte() & ViewModule.FLAG_KEYFRAME) != 0;
+        // States
+        data.positions = readPositions(in);
+        data.removed = readIdList(in);
+        data.messages = readMessages(in);
+        data.controlled = readIdList(in);
+        data.pushed = readIdList(in);
+        data.shielded = readIdList(in);
+        // Diffs
+        data.mana = readIntMap(in);
+        data.baseHealth = readIntMap(in);
+        data.mobHealth = readIntMap(in);
+        // Events
+        data.spawns = readEntities(in);
+        data.attacks = readAttacks(in);
+        data.baseAttacks = readBaseAttacks(in);
+        data.spellUses = readSpellUses(in);
+        if (data.keyframe) {
+            data.entities = readEntities(in);
+        }
+        return data;
+    }
+
+    /**
+     * @return the full state at the given frame: positions of all entities, all values of the diffs for the players and the live mobs
+     *         and, in <code>entities</code>, the spawn data of all entities. The other fields are those of the frame itself.
+     */
+    public FrameViewData getFrame(int index) {
+        int from = lastKeyframeBefore(index);
+        if (from < 0) {
+            throw new IllegalStateException("No keyframe before frame " + index);
+        }
+        FrameViewData state = decode(frames.get(from));
+        Map<Integer, Coord> before = null;
+        Map<Integer, EntityData> entities = new LinkedHashMap<>();
+        for (EntityData e : state.entities) {
+            entities.put(e.id, e);
+        }
+        for (int i = from + 1; i <= index; ++i) {
+            FrameViewData frame = decode(frames.get(i));
+            Map<Integer, Coord> positions = extrapolate(state.positions, state.keyframe ? null : before, frame.removed);
+            positions.putAll(frame.positions);
+            before = state.positions;
+            frame.positions = positions;
+            frame.mana = merge(state.mana, frame.mana);
+            frame.baseHealth = merge(state.baseHealth, frame.baseHealth);
+            frame.mobHealth = merge(state.mobHealth, frame.mobHealth);
+            for (EntityData e : frame.spawns) {
+                entities.put(e.id, e);
+            }
+            state = frame;
+        }
+        // Entities and mob health of the removed entities were only kept since the last keyframe
+        entities.keySet().retainAll(state.positions.keySet());
+        state.mobHealth.keySet().retainAll(state.positions.keySet());
+        state.entities = new ArrayList<>(entities.values());
+        return state;
+    }
+
+    private int lastKeyframeBefore(int index) {
+        int found = -1;
+        for (int keyframe : keyframes) {
+            if (keyframe > index) {
+                break;
+            }
+            found = keyframe;
+        }
+        return found;
+    }
+
+    /**
+     * Same rule as {@link PositionDeltas}: entities keep moving by their last displacement.
+     */
+    private static Map<Integer, Coord> extrapolate(Map<Integer, Coord> last, Map<Integer, Coord> before, List<Integer> removed) {
+        Map<Integer, Coord> positions = new HashMap<>();
+        Set<Integer> gone = new HashSet<>(removed);
+        for (Map.Entry<Integer, Coord> entry : last.entrySet()) {
+            if (gone.contains(entry.getKey())) {
+                continue;
+            }
+            Coord position = entry.getValue();
+            Coord previous = before == null ? null : before.get(entry.getKey());
+            positions.put(
+                entry.getKey(),
+                previous == null ? position : new Coord(2 * position.x - previous.x, 2 * position.y - previous.y)
+            );
+        }
+        return positions;
+    }
+
+    private static Map<Integer, Integer> merge(Map<Integer, Integer> values, Map<Integer, Integer> changes) {
+        Map<Integer, Integer> merged = new HashMap<>(values);
+        merged.putAll(changes);
+        return merged;
+    }
+
+    private static Map<Integer, Coord> readPositions(BinaryReader in) {
+        Map<Integer, Coord> positions = new HashMap<>();
+        int id = 0, x = 0, y = 0;
+        for (int count = in.readVarint(); count > 0; --count) {
+            id += in.readSignedVarint();
+            x += in.readSignedVarint();
+            y += in.readSignedVarint();
+            positions.put(id, new Coord(x, y));
+        }
+        return positions;
+    }
+
+    private static Map<Integer, String> readMessages(BinaryReader in) {
+        Map<Integer, String> messages = new HashMap<>();
+        int id = 0;
+        for (int count = in.readVarint(); count > 0; --count) {
+            id += in.readSignedVarint();
+            messages.put(id, in.readString());
+        }
+        return messages;
+    }
+
+    private static List<Integer> readIdList(BinaryReader in) {
+        int count = in.readVarint();
+        List<Integer> ids = new ArrayList<>(count);
+        int id = 0;
+        for (int i = 0; i < count; ++i) {
+            id += in.readSignedVarint();
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static Map<Integer, Integer> readIntMap(BinaryReader in) {
+        Map<Integer, Integer> values = new HashMap<>();
+        int key = 0;
+        for (int count = in.readVarint(); count > 0; --count) {
+            key += in.readSignedVarint();
+            values.put(key, in.readSignedVarint());
+        }
+        return values;
+    }
+
+    private static List<EntityData> readEntities(BinaryReader in) {
+        int count = in.readVarint();
+        List<EntityData> entities = new ArrayList<>(count);
+        int id = 0;
+        for (int i = 0; i < count; ++i) {
+            EntityData e = new EntityData();
+            id += in.readSignedVarint();
+            e.id = id;
+            e.type = in.readVarint();
+            if (in.readByte() == 1) {
+                e.health = in.readSignedVarint();
+            }
+            entities.add(e);
+        }
+        return entities;
+    }
+
+    private static List<Attack> readAttacks(BinaryReader in) {
+        int count = in.readVarint();
+        List<Attack> attacks = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            Attack a = new Attack();
+            a.hero = in.readVarint();
+            a.mobs = readIdList(in);
+            attacks.add(a);
+        }
+        return attacks;
+    }
+
+    private static List<BaseAttack> readBaseAttacks(BinaryReader in) {
+        int count = in.readVarint();
+        List<BaseAttack> baseAttacks = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            BaseAttack e = new BaseAttack();
+            e.player = in.readVarint();
+            e.mob = in.readVarint();
+            baseAttacks.add(e);
+        }
+        return baseAttacks;
+    }
+
+    private static List<SpellUse> readSpellUses(BinaryReader in) {
+        int count = in.readVarint();
+        List<SpellUse> spellUses = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            SpellUse e = new SpellUse();
+            e.hero = in.readVarint();
+            e.spell = ViewModule.SPELLS[in.readVarint()];
+            e.target = in.readSignedVarint();
+            e.destination = new Coord(in.readSignedVarint(), in.readSignedVarint());
+            spellUses.add(e);
+        }
+        return spellUses;
+    }
+}
@@ -1,11 +1,14 @@
 package com.codingame.view;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import com.codingame.game.GameEngine;
 import com.codingame.game.Referee;
+import com.codingame.game.event.Events;
 import com.codingame.gameengine.core.AbstractPlayer;
 import com.codingame.gameengine.core.GameManager;
 import com.codingame.gameengine.core.Module;
@@ -14,8 +17,19 @@ import com.google.inject.Inject;
 
 public class ViewModule implements Module {
 
+    /** First character of binary frames, which text frames never start with */
+    public static final char BINARY_FRAME_PREFIX = '@';
+    public static final int FRAME_FORMAT_VERSION = 3;
+    static final int FLAG_KEYFRAME = 1;
+    /** Spells by index in the binary format */
+    static final String[] SPELLS = { "WIND", "SHIELD", "CONTROL" };
+
     private GameManager<AbstractPlayer> gameManager;
     private Referee referee;
+    private BinaryWriter frameWriter = new BinaryWriter(1024);
+    private int[] sortedKeys = new int[64];
+    private int keyframeInterval = 1;
+    private int frameCount;
 
     @Inject
     ViewModule(GameManager<AbstractPlayer> gameManager) {
@@ -34,12 +48,17 @@ public class ViewModule implements Module {
     }
 
     private void sendFrameData() {
-        FrameViewData data = referee.getCurrentFrameData();
-        gameManager.setViewData("graphics", serialize(data));
+        int frame = frameCount++;
+        FrameViewData data = referee.getCurrentFrameData(frame % keyframeInterval == 0);
+        Object event = Events.beginFrame();
+        String serialized = serialize(data);
+        Events.endFrame(event, frame, data.keyframe, data.positions.size(), frameWriter.size());
+        gameManager.setViewData("graphics", serialized);
     }
 
     private void sendGlobalData() {
         GlobalViewData data = referee.getGlobalData();
+        keyframeInterval = data.keyframeInterval;
         gameManager.setViewGlobalData("graphics", serialize(data));
 
     }
@@ -57,7 +76,7 @@ public class ViewModule implements Module {
     private String serialize(GlobalViewData data) {
         List<String> lines = new ArrayList<>();
         lines.add(
-            Referee.join(
+            GameEngine.join(
                 data.width,
                 data.height,
                 data.baseAttractionRadius,
@@ -71,6 +90,7 @@ public class ViewModule implements Module {
         );
         lines.add(serialize(data.basePositions.get(0)));
         lines.add(serialize(data.basePositions.get(1)));
+        lines.add(String.valueOf(data.keyframeInterval));
         return lines.stream().collect(Collectors.joining("\n"));
     }
 
@@ -78,87 +98,175 @@ public class ViewModule implements Module {
         return coord == null ? "0 0" : coord.x + " " + coord.y;
     }
 
-    private String serialize(FrameViewData data) {
-        List<String> lines = new ArrayList<>();
+    /**
+     * Binary frame layout, version 3. Ids, coordinates and values are signed varints, counts and other indexes unsigned ones. In each
+     * list, ids are deltas from the previous id and position coordinates are deltas from the previous position.
+     *
+     * <pre>
+     * version
+     * flags        FLAG_KEYFRAME
+     * positions    count (id x y)*
+     * removed      count id*
+     * messages     count (id length utf8)*
+     * controlled   count id*
+     * pushed       count id*
+     * shielded     count id*
+     * mana         count (player value)*
+     * baseHealth   count (player value)*
+     * mobHealth    count (id value)*
+     * spawns       count (id type hasHealth health?)*
+     * attacks      count (hero count id*)*
+     * baseAttacks  count (player mob)*
+     * spellUses    count (hero spell target x y)*
+     * entities     count (id type hasHealth health?)*   keyframes only
+     * </pre>
+     */
+    String serialize(FrameViewData data) {
+        BinaryWriter out = frameWriter;
+        out.clear();
+        out.writeByte(FRAME_FORMAT_VERSION);
+        out.writeByte(data.keyframe ? FLAG_KEYFRAME : 0);
         // States
-        lines.add(serializeIntToCoord(data.positions));
-        lines.add(serializeIntToText(data.messages));
-        lines.add(serializeIntList(data.controlled));
-        lines.add(serializeIntList(data.pushed));
-        lines.add(serializeIntList(data.shielded));
+        writePositions(out, data.positions);
+        writeIdList(out, data.removed);
+        writeMessages(out, data.messages);
+        writeIdList(out, data.controlled);
+        writeIdList(out, data.pushed);
+        writeIdList(out, data.shielded);
         // Diffs
-        lines.add(serializeIntToString(data.mana));
-        lines.add(serializeIntToString(data.baseHealth));
-        lines.add(serializeIntToString(data.mobHealth));
+        writeIntMap(out, data.mana);
+        writeIntMap(out, data.baseHealth);
+        writeIntMap(out, data.mobHealth);
         // Events
-        lines.add(serializeSpawnList(data.spawns));
-        lines.add(serializeAttackList(data.attacks));
-        lines.add(serializeBaseAttackList(data.baseAttacks));
-        lines.add(serializeSpellUseList(data.spellUses));
-        // End of data marker (to avoid trims) 
-        if (data.spellUses.isEmpty()) {
-            lines.add("X");
+        writeSpawns(out, data.spawns);
+        writeAttacks(out, data.attacks);
+        writeBaseAttacks(out, data.baseAttacks);
+        writeSpellUses(out, data.spellUses);
+        if (data.keyframe) {
+            writeSpawns(out, data.entities);
         }
 
-        return lines.stream().collect(Collectors.joining("\n"));
-    }
-
-    private String serializeIntToText(Map<Integer, String> messages) {
-        return messages.entrySet().stream()
-            .map(e -> e.getKey() + ";" + e.getValue())
-            .collect(Collectors.joining(";"));
+        return BINARY_FRAME_PREFIX + out.toBase64();
     }
 
-    private String serializeSpellUseList(List<SpellUse> spellUses) {
-        return spellUses.stream().map(e -> serialize(e)).collect(Collectors.joining(" "));
-    }
-
-    private String serialize(SpellUse e) {
-        return Referee.join(e.hero, e.spell, e.target, serialize(e.destination));
-    }
-
-    private String serializeBaseAttackList(List<BaseAttack> baseAttacks) {
-        return baseAttacks.stream().map(e -> serialize(e)).collect(Collectors.joining(" "));
+    /**
+     * Sorts the keys of a map into <code>sortedKeys</code>, so frames don't depend on the iteration order of the map.
+     *
+     * @return the number of keys
+     */
+    private int sortKeys(Map<Integer, ?> map) {
+        if (sortedKeys.length < map.size()) {
+            sortedKeys = new int[Math.max(sortedKeys.length * 2, map.size())];
+        }
+        int count = 0;
+        for (Integer key : map.keySet()) {
+            sortedKeys[count++] = key;
+        }
+        Arrays.sort(sortedKeys, 0, count);
+        return count;
     }
 
-    private String serialize(BaseAttack e) {
-        return Referee.join(e.player, e.mob);
+    private void writePositions(BinaryWriter out, Map<Integer, Coord> positions) {
+        int count = sortKeys(positions);
+        out.writeVarint(count);
+        int previousId = 0, previousX = 0, previousY = 0;
+        for (int k = 0; k < count; ++k) {
+            int id = sortedKeys[k];
+            Coord coord = positions.get(id);
+            out.writeSignedVarint(id - previousId);
+            out.writeSignedVarint(coord.x - previousX);
+            out.writeSignedVarint(coord.y - previousY);
+            previousId = id;
+            previousX = coord.x;
+            previousY = coord.y;
+        }
     }
 
-    private String serializeAttackList(List<Attack> attacks) {
-        return attacks.stream().map(e -> serialize(e)).collect(Collectors.joining(" "));
+    private void writeMessages(BinaryWriter out, Map<Integer, String> messages) {
+        int count = sortKeys(messages);
+        out.writeVarint(count);
+        int previousId = 0;
+        for (int k = 0; k < count; ++k) {
+            int id = sortedKeys[k];
+            out.writeSignedVarint(id - previousId);
+            out.writeString(messages.get(id));
+            previousId = id;
+        }
     }
 
-    private String serialize(Attack a) {
-        return Referee.join(a.hero, serializeIntList(a.mobs, ";"));
+    private void writeIdList(BinaryWriter out, List<Integer> ids) {
+        out.writeVarint(ids.size());
+        int previousId = 0;
+        for (int k = 0; k < ids.size(); ++k) {
+            int id = ids.get(k);
+            out.writeSignedVarint(id - previousId);
+            previousId = id;
+        }
     }
 
-    private String serializeSpawnList(List<EntityData> spawns) {
-        return spawns.stream().map(e -> serialize(e)).collect(Collectors.joining(" "));
+    private void writeIntMap(BinaryWriter out, Map<Integer, Integer> values) {
+        int count = sortKeys(values);
+        out.writeVarint(count);
+        int previousKey = 0;
+        for (int k = 0; k < count; ++k) {
+            int key = sortedKeys[k];
+            out.writeSignedVarint(key - previousKey);
+            out.writeSignedVarint(values.get(key));
+            previousKey = key;
+        }
     }
 
-    private String serialize(EntityData e) {
-        return Referee.join(e.id, e.type, e.health);
+    private void writeSpawns(BinaryWriter out, List<EntityData> spawns) {
+        out.writeVarint(spawns.size());
+        int previousId = 0;
+        for (EntityData e : spawns) {
+            out.writeSignedVarint(e.id - previousId);
+            out.writeVarint(e.type);
+            if (e.health == null) {
+                out.writeByte(0);
+            } else {
+                out.writeByte(1);
+                out.writeSignedVarint(e.health);
+            }
+            previousId = e.id;
+        }
     }
 
-    private <T> String serializeIntToString(Map<Integer, T> mana) {
-        return mana.entrySet().stream()
-            .map(e -> Referee.join(e.getKey(), e.getValue()))
-            .collect(Collectors.joining(" "));
+    private void writeAttacks(BinaryWriter out, List<Attack> attacks) {
+        out.writeVarint(attacks.size());
+        for (Attack a : attacks) {
+            out.writeVarint(a.hero);
+            writeIdList(out, a.mobs);
+        }
     }
 
-    private String serializeIntList(List<Integer> ints) {
-        return serializeIntList(ints, " ");
+    private void writeBaseAttacks(BinaryWriter out, List<BaseAttack> baseAttacks) {
+        out.writeVarint(baseAttacks.size());
+        for (BaseAttack e : baseAttacks) {
+            out.writeVarint(e.player);
+            out.writeVarint(e.mob);
+        }
     }
 
-    private String serializeIntList(List<Integer> ints, String delimiter) {
-        return ints.stream().map(String::valueOf).collect(Collectors.joining(delimiter));
+    private void writeSpellUses(BinaryWriter out, List<SpellUse> spellUses) {
+        out.writeVarint(spellUses.size());
+        for (SpellUse e : spellUses) {
+            out.writeVarint(e.hero);
+            out.writeVarint(spellIndex(e.spell));
+            out.writeSignedVarint(e.target);
+            // Same as the text format, which had no null destination
+            out.writeSignedVarint(e.destination == null ? 0 : e.destination.x);
+            out.writeSignedVarint(e.destination == null ? 0 : e.destination.y);
+        }
     }
 
-    private String serializeIntToCoord(Map<Integer, Coord> intToCoord) {
-        return intToCoord.entrySet().stream()
-            .map(e -> Referee.join(e.getKey(), serialize(e.getValue())))
-            .collect(Collectors.joining(" "));
+    private static int spellIndex(String spell) {
+        for (int i = 0; i < SPELLS.length; ++i) {
+            if (SPELLS[i].equals(spell)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown spell " + spell);
     }
 
 }
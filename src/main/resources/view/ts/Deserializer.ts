@@ -86,7 +86,205 @@ function parseSpellUses (values) {
   })(values)
 }
 
+// Binary frames, see ViewModule.java
+const BINARY_FRAME_PREFIX = '@'
+const FRAME_FORMAT_VERSION = 3
+const FLAG_KEYFRAME = 1
+const SPELLS = ['WIND', 'SHIELD', 'CONTROL']
+
+class BinaryReader {
+  bytes: Uint8Array
+  offset: number
+
+  constructor (base64: string) {
+    const chars = atob(base64)
+    this.bytes = new Uint8Array(chars.length)
+    for (let i = 0; i < chars.length; ++i) {
+      this.bytes[i] = chars.charCodeAt(i)
+    }
+    this.offset = 0
+  }
+
+  byte () {
+    return this.bytes[this.offset++]
+  }
+
+  varint () {
+    let value = 0
+    let shift = 0
+    let b
+    do {
+      b = this.bytes[this.offset++]
+      value |= (b & 0x7F) << shift
+      shift += 7
+    } while (b & 0x80)
+    return value >>> 0
+  }
+
+  signedVarint () {
+    const value = this.varint()
+    return (value >>> 1) ^ -(value & 1)
+  }
+
+  string () {
+    const length = this.varint()
+    const value = new TextDecoder('utf-8').decode(this.bytes.subarray(this.offset, this.offset + length))
+    this.offset += length
+    return value
+  }
+}
+
+function readPositions (reader: BinaryReader) {
+  const positions = {}
+  let id = 0
+  let x = 0
+  let y = 0
+  for (let count = reader.varint(); count > 0; --count) {
+    id += reader.signedVarint()
+    x += reader.signedVarint()
+    y += reader.signedVarint()
+    positions[id] = { x, y }
+  }
+  return positions
+}
+
+function readMessages (reader: BinaryReader) {
+  const messages = {}
+  let id = 0
+  for (let count = reader.varint(); count > 0; --count) {
+    id += reader.signedVarint()
+    messages[id] = reader.string()
+  }
+  return messages
+}
+
+function readIdList (reader: BinaryReader) {
+  const count = reader.varint()
+  const ids = new Array(count)
+  let id = 0
+  for (let i = 0; i < count; ++i) {
+    id += reader.signedVarint()
+    ids[i] = id
+  }
+  return ids
+}
+
+function readIntMap (reader: BinaryReader) {
+  const ints = {}
+  let key = 0
+  for (let count = reader.varint(); count > 0; --count) {
+    key += reader.signedVarint()
+    ints[key] = reader.signedVarint()
+  }
+  return ints
+}
+
+function readSpawns (reader: BinaryReader) {
+  const spawns = []
+  let id = 0
+  for (let count = reader.varint(); count > 0; --count) {
+    id += reader.signedVarint()
+    const type = reader.varint()
+    const health = reader.byte() === 1 ? reader.signedVarint() : null
+    spawns.push({ id, type, health })
+  }
+  return spawns
+}
+
+function readAttacks (reader: BinaryReader) {
+  const attacks = []
+  for (let count = reader.varint(); count > 0; --count) {
+    const hero = reader.varint()
+    const mobs = readIdList(reader)
+    attacks.push({ hero, mobs })
+  }
+  return attacks
+}
+
+function readBaseAttacks (reader: BinaryReader) {
+  const baseAttacks = []
+  for (let count = reader.varint(); count > 0; --count) {
+    const player = reader.varint()
+    const mob = reader.varint()
+    baseAttacks.push({ player, mob })
+  }
+  return baseAttacks
+}
+
+function readSpellUses (reader: BinaryReader) {
+  const spellUses = []
+  for (let count = reader.varint(); count > 0; --count) {
+    const hero = reader.varint()
+    const spell = SPELLS[reader.varint()]
+    const target = reader.signedVarint()
+    const x = reader.signedVarint()
+    const y = reader.signedVarint()
+    spellUses.push({ hero, spell, target, destination: { x, y } })
+  }
+  return spellUses
+}
+
+function parseBinaryData (raw: string) {
+  const reader = new BinaryReader(raw.substring(BINARY_FRAME_PREFIX.length))
+  const version = reader.byte()
+  if (version !== FRAME_FORMAT_VERSION) {
+    throw new Error('Unsupported frame format version ' + version)
+  }
+  const data = {} as any
+  data.keyframe = (reader.byte() & FLAG_KEYFRAME) !== 0
+
+  // States
+  data.positions = readPositions(reader)
+  data.removed = readIdList(reader)
+  data.messages = readMessages(reader)
+  data.controlled = readIdList(reader)
+  data.pushed = readIdList(reader)
+  data.shielded = readIdList(reader)
+
+  // Diffs
+  data.mana = readIntMap(reader)
+  data.baseHealth = readIntMap(reader)
+  data.mobHealth = readIntMap(reader)
+
+  // Events
+  data.spawns = readSpawns(reader)
+  data.attacks = readAttacks(reader)
+  data.baseAttacks = readBaseAttacks(reader)
+  data.spellUses = readSpellUses(reader)
+
+  // Keyframes only
+  if (data.keyframe) {
+    data.entities = readSpawns(reader)
+  }
+
+  return data
+}
+
+/**
+ * Binary frames only hold the positions that cannot be extrapolated from the previous frames, see PositionDeltas.java.
+ * @returns the positions of all the entities of the frame
+ */
+export function applyPositionDeltas (positions, removed, previous, beforePrevious) {
+  const gone = new Set(removed)
+  const all = {}
+  for (const id in previous.positions) {
+    if (gone.has(+id)) {
+      continue
+    }
+    const last = previous.positions[id]
+    const before = beforePrevious?.positions[id]
+    all[id] = before
+      ? { x: 2 * last.x - before.x, y: 2 * last.y - before.y }
+      : { x: last.x, y: last.y }
+  }
+  return Object.assign(all, positions)
+}
+
 export function parseData (raw) {
+  if (raw.startsWith(BINARY_FRAME_PREFIX)) {
+    return parseBinaryData(raw)
+  }
+  // Text frames, as in the demo replay
   const data = {} as any
   let idx = 0
   const lines = raw.split('\n').map(line => line === '' ? [] : line.split(' '))
@@ -131,6 +329,7 @@ export function parseGlobalData (raw) {
   data.enableSpells = general[gIdx++] === '1'
   data.enableFog = general[gIdx++] === '1'
   data.demo = general[gIdx] === 'DEMO'
+  data.keyframeInterval = lines.length > 3 ? +lines[3][0] : 0
   data.basePositions = [
     {
       x: +base0[0],
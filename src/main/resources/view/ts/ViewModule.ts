@@ -1,7 +1,7 @@
 import { WIDTH, HEIGHT } from '../core/constants.js'
 import * as utils from '../core/utils.js'
 import { messageBox, initMessages } from './MessageBoxes.js'
-import { parseData, parseGlobalData } from './Deserializer.js'
+import { parseData, parseGlobalData, applyPositionDeltas } from './Deserializer.js'
 import { getRenderer, flagForDestructionOnReinit } from '../core/rendering.js'
 import {
   EFFECT_HIT,
@@ -594,7 +594,10 @@ export class ViewModule {
   }
 
   _handleFrameData (frameInfo, {
+    keyframe,
+    entities,
     positions,
+    removed,
     spawns,
     attacks,
     baseAttacks,
@@ -612,10 +615,15 @@ export class ViewModule {
       mobHealth: {},
       baseHealth: {},
       controlled: [],
-      spellUses: []
+      spellUses: [],
+      positions: {}
+    }
+    if (removed && !keyframe) {
+      positions = applyPositionDeltas(positions, removed, previous, previous.keyframe ? null : previous.previous)
     }
     const state = {
       number: frameInfo.number,
+      keyframe,
       spawns,
       positions,
       attacks,
@@ -639,7 +647,7 @@ export class ViewModule {
       messages,
       previous
     }
-    for (const e of spawns) {
+    for (const e of entities || spawns) {
       this.entityMap[e.id] = e
     }
     this.states.push(state)
@@ -0,0 +1,185 @@
+package com.codingame.game;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.codingame.game.action.ActionType;
+
+/**
+ * Checks that {@link CommandParser} accepts and reads random hero output lines exactly as the regular expressions it replaced: type of
+ * command, id, coordinates, message and overflowing numbers, in every league, and that {@link CommandParser#filterMessage(String)}
+ * removes the same characters as the former character class.
+ *
+ * <pre>
+ * CommandParserCheck [lineCount] [seed]
+ * </pre>
+ *
+ * Lines are drawn from the tokens of valid commands, in any case, with numbers of any size and every kind of whitespace, line
+ * terminator and symbol the former patterns treated differently.
+ */
+public class CommandParserCheck {
+
+    private static final Pattern WAIT = Pattern.compile("^WAIT(?:\\s+(?<message>.+))?\\s*$");
+    private static final Pattern MOVE = Pattern.compile("^MOVE\\s+(?<x>-?\\d+)\\s+(?<y>-?\\d+)(?:\\s+(?<message>.+))?\\s*$");
+    private static final Pattern WIND = Pattern.compile(
+        "^SPELL\\s+WIND\\s+(?<x>-?\\d+)\\s+(?<y>-?\\d+)(?:\\s+(?<message>.+))?\\s*$"
+    );
+    private static final Pattern SHIELD = Pattern.compile("^SPELL\\s+(SHIELD\\s+(?<id>-?\\d+))(?:\\s+(?<message>.+))?\\s*$");
+    private static final Pattern CONTROL = Pattern.compile(
+        "^SPELL\\s+(CONTROL\\s+(?<id>-?\\d+)\\s+(?<x>-?\\d+)\\s+(?<y>-?\\d+))(?:\\s+(?<message>.+))?\\s*$"
+    );
+    private static final String CHARACTER_FILTER = "[^\\p{L}\\p{M}\\p{N}\\p{P}\\p{Z}\\p{Cf}\\p{Cs}\\s]";
+
+    private static final String[] KEYWORDS = { "WAIT", "MOVE", "SPELL", "WIND", "SHIELD", "CONTROL", "wait", "Move", "SPELLS", "WINDY" };
+    private static final String[] COMMANDS = { "WAIT", "MOVE", "SPELL" };
+    private static final String[] SPELLS = { "WIND", "SHIELD", "CONTROL" };
+    private static final String[] SPACES = { " ", "  ", "\t", "\n", "\r", "\u000B", "\f", "\u0085", "\u2028", "\u00A0" };
+    private static final String[] NUMBERS = {
+        "0", "7", "-3", "8815", "17630", "-0", "007", "2147483647", "2147483648", "-2147483648", "-2147483649", "99999999999999999999",
+        "-", "--1", "1-", "1.5", "\u0661"
+    };
+    private static final String[] WORDS = { "hi", "a", "\uD83D\uDE00", "\u00E9t\u00E9", "\u2603", "$", "+", "\u200D", "\uD800", "1" };
+    private static final int MAX_REPORTED = 20;
+
+    private final Random random;
+    private long lineCount;
+    private long differingLines;
+
+    CommandParserCheck(Random random) {
+        this.random = random;
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String separator() {
+        return random.nextInt(4) == 0 ? pick(SPACES) : " ";
+    }
+
+    private String number() {
+        return random.nextInt(4) == 0 ? pick(NUMBERS) : String.valueOf(random.nextInt(40000) - 20000);
+    }
+
+    /**
+     * @return a command, mostly well formed, with random tokens, separators and message
+     */
+    private String randomLine() {
+        StringBuilder line = new StringBuilder();
+        if (random.nextInt(20) == 0) {
+            line.append(separator());
+        }
+        String command = random.nextInt(4) == 0 ? pick(KEYWORDS) : pick(COMMANDS);
+        line.append(command);
+        if ("SPELL".equals(command)) {
+            line.append(separator()).append(random.nextInt(4) == 0 ? pick(KEYWORDS) : pick(SPELLS));
+        }
+        int tokens = random.nextInt(5);
+        for (int i = 0; i < tokens; ++i) {
+            line.append(separator()).append(random.nextInt(10) == 0 ? pick(WORDS) : number());
+        }
+        int words = random.nextInt(3);
+        for (int i = 0; i < words; ++i) {
+            line.append(separator()).append(pick(WORDS));
+        }
+        int trailing = random.nextInt(3);
+        for (int i = 0; i < trailing; ++i) {
+            line.append(separator());
+        }
+        return line.toString();
+    }
+
+    /**
+     * @return what the former patterns read from the line, in the order they were tried
+     */
+    private static String expected(Configuration config, String line) {
+        try {
+            Matcher match;
+            if ((match = WAIT.matcher(line)).matches()) {
+                return describe(ActionType.IDLE, 0, 0, 0, match.group("message"));
+            }
+            if ((match = MOVE.matcher(line)).matches()) {
+                int x = Integer.valueOf(match.group("x"));
+                int y = Integer.valueOf(match.group("y"));
+                return describe(ActionType.MOVE, 0, x, y, match.group("message"));
+            }
+            if (config.ENABLE_WIND && (match = WIND.matcher(line)).matches()) {
+                int x = Integer.valueOf(match.group("x"));
+                int y = Integer.valueOf(match.group("y"));
+                return describe(ActionType.WIND, 0, x, y, match.group("message"));
+            }
+            if (config.ENABLE_SHIELD && (match = SHIELD.matcher(line)).matches()) {
+                int id = Integer.valueOf(match.group("id"));
+                return describe(ActionType.SHIELD, id, 0, 0, match.group("message"));
+            }
+            if (config.ENABLE_CONTROL && (match = CONTROL.matcher(line)).matches()) {
+                int id = Integer.valueOf(match.group("id"));
+                int x = Integer.valueOf(match.group("x"));
+                int y = Integer.valueOf(match.group("y"));
+                return describe(ActionType.CONTROL, id, x, y, match.group("message"));
+            }
+            return "invalid";
+        } catch (NumberFormatException e) {
+            return "overflow";
+        }
+    }
+
+    private static String actual(CommandParser parser, String line) {
+        try {
+            ActionType type = parser.parse(line);
+            if (type == null) {
+                return "invalid";
+            }
+            boolean hasId = type == ActionType.SHIELD || type == ActionType.CONTROL;
+            boolean hasCoordinates = type == ActionType.MOVE || type == ActionType.WIND || type == ActionType.CONTROL;
+            return describe(type, hasId ? parser.id : 0, hasCoordinates ? parser.x : 0, hasCoordinates ? parser.y : 0, parser.message);
+        } catch (NumberFormatException e) {
+            return "overflow";
+        }
+    }
+
+    private static String describe(ActionType type, int id, int x, int y, String message) {
+        String filtered = message == null ? null : message.replaceAll(CHARACTER_FILTER, "");
+        return type + " " + id + " " + x + " " + y + " " + quote(message) + " " + quote(filtered);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder("\"");
+        value.codePoints().forEach(c -> quoted.append(c >= 0x20 && c < 0x7F ? String.valueOf((char) c) : String.format("\\u%04X", c)));
+        return quoted.append('"').toString();
+    }
+
+    private void check(String name, Configuration config, int lines) {
+        CommandParser parser = new CommandParser(config);
+        for (int i = 0; i < lines; ++i) {
+            String line = randomLine();
+            String expected = expected(config, line);
+            String actual = actual(parser, line);
+            if (parser.message != null) {
+                String filtered = CommandParser.filterMessage(parser.message);
+                String reference = parser.message.replaceAll(CHARACTER_FILTER, "");
+                if (!filtered.equals(reference)) {
+                    actual += " filtered to " + quote(filtered);
+                }
+            }
+            lineCount++;
+            if (!expected.equals(actual) && ++differingLines <= MAX_REPORTED) {
+                System.out.println(String.format("%s: %s read as %s, expected %s", name, quote(line), actual, expected));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        CommandParserCheck check = new CommandParserCheck(new Random(args.length > 1 ? Long.parseLong(args[1]) : 0));
+        for (GoldenHarness.Variant variant : GoldenHarness.Variant.values()) {
+            check.check(variant.name(), variant.config(), lines);
+        }
+        System.out.println(String.format("%d of %d lines differ", check.differingLines, check.lineCount));
+        System.exit(check.differingLines == 0 ? 0 : 1);
+    }
+}
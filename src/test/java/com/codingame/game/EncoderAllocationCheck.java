@@ -0,0 +1,105 @@
+package com.codingame.game;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that {@link ObservationEncoder#encode(GameEngine, int, float[], int, int[], int)} does not allocate: plays {@link ScriptedBot}
+ * games of every {@link GoldenHarness.Variant} and reads the allocation counter of the thread around each encoding. The first game of
+ * each variant only loads and warms up the code.
+ * <p>
+ * The counter also catches one-off allocations of the JVM on the thread, such as those of a compilation or deoptimization landing in
+ * the middle of an encoding. As encoding does not change the game, an encoding that allocated is measured again, up to
+ * {@link #ATTEMPTS} times, and only counts as allocating if every attempt did.
+ *
+ * <pre>
+ * EncoderAllocationCheck [seedCount]
+ * </pre>
+ */
+public class EncoderAllocationCheck {
+
+    private static final int PLAYER_COUNT = 2;
+    private static final int ENTITY_SLOTS = 40;
+    private static final int PLANE_COLUMNS = 18;
+    private static final int PLANE_ROWS = 9;
+    private static final int ATTEMPTS = 3;
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long threadId = Thread.currentThread().getId();
+    private long encodings;
+    private long remeasuredEncodings;
+    private long allocatingEncodings;
+    private long allocatedBytes;
+
+    /**
+     * Plays a game, encoding the view of both players at every turn.
+     *
+     * @param measure
+     *            whether to count the bytes allocated by the encodings
+     */
+    private void play(Configuration config, ObservationEncoder encoder, long seed, boolean measure) {
+        GameEngine engine = new GameEngine(config, seed, PLAYER_COUNT);
+        ScriptedBot[] bots = new ScriptedBot[PLAYER_COUNT];
+        for (int i = 0; i < PLAYER_COUNT; ++i) {
+            bots[i] = new ScriptedBot(config, seed * 31 + i);
+            bots[i].init(engine.getGlobalInfoFor(i));
+        }
+        float[] observation = new float[encoder.getSize()];
+        int[] ids = new int[encoder.getEntitySlots()];
+        List<List<String>> outputs = new ArrayList<>(Arrays.asList(null, null));
+        while (!engine.isOver()) {
+            engine.beginTurn();
+            for (int i = 0; i < PLAYER_COUNT; ++i) {
+                long bytes = measure(engine, encoder, i, observation, ids);
+                for (int attempt = 1; bytes > 0 && attempt < ATTEMPTS; ++attempt) {
+                    if (measure && attempt == 1) {
+                        remeasuredEncodings++;
+                    }
+                    bytes = measure(engine, encoder, i, observation, ids);
+                }
+                if (measure) {
+                    encodings++;
+                    if (bytes > 0) {
+                        allocatingEncodings++;
+                        allocatedBytes += bytes;
+                    }
+                }
+            }
+            for (int i = 0; i < PLAYER_COUNT; ++i) {
+                outputs.set(i, engine.getPlayer(i).isActive() ? bots[i].play(engine.getGameStateFor(i)) : null);
+            }
+            engine.step(outputs.get(0), outputs.get(1));
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the thread while encoding the view of the player
+     */
+    private long measure(GameEngine engine, ObservationEncoder encoder, int playerIndex, float[] observation, int[] ids) {
+        long before = threads.getThreadAllocatedBytes(threadId);
+        encoder.encode(engine, playerIndex, observation, 0, ids, 0);
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    public static void main(String[] args) {
+        int seedCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        EncoderAllocationCheck check = new EncoderAllocationCheck();
+        for (GoldenHarness.Variant variant : GoldenHarness.Variant.values()) {
+            Configuration config = variant.config();
+            ObservationEncoder encoder = new ObservationEncoder(config, ENTITY_SLOTS, PLANE_COLUMNS, PLANE_ROWS);
+            check.play(config, encoder, -1, false);
+            for (long seed = 0; seed < seedCount; ++seed) {
+                check.play(config, encoder, seed, true);
+            }
+        }
+        System.out.println(
+            String.format(
+                "%d of %d encodings allocated, %d bytes in all (%d measured again)", check.allocatingEncodings, check.encodings,
+                check.allocatedBytes, check.remeasuredEncodings
+            )
+        );
+        System.exit(check.allocatingEncodings == 0 ? 0 : 1);
+    }
+}
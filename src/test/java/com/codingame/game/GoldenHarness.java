@@ -0,0 +1,233 @@
+package com.codingame.game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Regression check of the engine: plays {@link ScriptedBot} games headlessly over a range of seeds, hashes the full state after every
+ * turn, and compares the hashes with golden files recorded before a change. Any difference in the rules, the random draws or the order
+ * of the entities shows up as the first turn of the first seed where the state diverges, down to the entity.
+ * <p>
+ * The build checks the golden files of <code>src/test/resources/golden</code>, 64 seeds per variant recorded on the object model the
+ * engine had before its entity store, so that its refactors are checked against the original rules. They were recorded on b669f37
+ * with the recorder of <code>recorder-b669f37.patch</code>, next to them. The current engine records the same bytes, so either of
+ * these regenerates them, from the root of the repository:
+ *
+ * <pre>
+ * git worktree add /tmp/b669f37 b669f37
+ * git -C /tmp/b669f37 apply $PWD/src/test/resources/golden/recorder-b669f37.patch
+ * OldRecorder 0 64 src/test/resources/golden                 (compiled from the sources of /tmp/b669f37)
+ *
+ * GoldenHarness record all 0 64
+ * </pre>
+ *
+ * For a wider check, record more seeds on the code to compare with, then check the change:
+ *
+ * <pre>
+ * GoldenHarness record all 0 2000 /tmp/golden
+ * GoldenHarness check all /tmp/golden
+ * </pre>
+ *
+ * Games are spread over a fork-join pool and compared by chunks, so that thousands of seeds run in seconds and in bounded memory.
+ */
+public class GoldenHarness {
+
+    enum Variant {
+        LEAGUE1(1), LEAGUE2(2), LEAGUE3(3),
+        /** Five heroes, mobs every turn and enough mana to cast spells from the start */
+        STRESS(3, "HEROES_PER_PLAYER", "5", "MOB_SPAWN_RATE", "1", "STARTING_MANA", "200");
+
+        private final int leagueLevel;
+        private final String[] params;
+
+        Variant(int leagueLevel, String... params) {
+            this.leagueLevel = leagueLevel;
+            this.params = params;
+        }
+
+        Configuration config() {
+            Properties properties = new Properties();
+            for (int i = 0; i < params.length; i += 2) {
+                properties.setProperty(params[i], params[i + 1]);
+            }
+            return new Configuration(properties, leagueLevel);
+        }
+
+        String fileName() {
+            return name().toLowerCase() + ".golden.gz";
+        }
+    }
+
+    private static final int MAGIC = 0x53504748;
+    private static final int VERSION = 1;
+    private static final int PLAYER_COUNT = 2;
+    private static final int CHUNK_SIZE = 256;
+    private static final int MAX_REPORTED = 20;
+    /** The golden files checked by the build */
+    static final String DEFAULT_DIRECTORY = "src/test/resources/golden";
+
+    private final File directory;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public GoldenHarness(File directory) {
+        this.directory = directory;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Plays a game between two scripted bots, as the referee would, and records the state after each turn.
+     */
+    static StateTrace play(Configuration config, long seed) {
+        GameEngine engine = new GameEngine(config, seed, PLAYER_COUNT);
+        StateTrace trace = new StateTrace(seed, PLAYER_COUNT, PLAYER_COUNT * config.HEROES_PER_PLAYER);
+        ScriptedBot[] bots = new ScriptedBot[PLAYER_COUNT];
+        for (int i = 0; i < PLAYER_COUNT; ++i) {
+            bots[i] = new ScriptedBot(config, seed * 31 + i);
+            bots[i].init(engine.getGlobalInfoFor(i));
+        }
+        GameSnapshot snapshot = engine.snapshot();
+        trace.record(snapshot, engine.getGameSummary());
+        List<List<String>> outputs = new ArrayList<>(Arrays.asList(null, null));
+        while (!engine.isOver()) {
+            for (int i = 0; i < PLAYER_COUNT; ++i) {
+                outputs.set(i, engine.getPlayer(i).isActive() ? bots[i].play(engine.getGameStateFor(i)) : null);
+            }
+            engine.step(outputs.get(0), outputs.get(1));
+            engine.snapshot(snapshot);
+            trace.record(snapshot, engine.getGameSummary());
+        }
+        trace.result = Arrays.hashCode(engine.computeScores()) * 31 + (engine.isTie() ? 1 : 0);
+        return trace;
+    }
+
+    private List<StateTrace> playChunk(ForkJoinPool pool, Configuration config, long from, long to)
+        throws InterruptedException, ExecutionException {
+        return pool.submit(
+            () -> LongStream.range(from, to).parallel()
+                .mapToObj(seed -> play(config, seed))
+                .collect(Collectors.toList())
+        ).get();
+    }
+
+    public void record(Variant variant, long firstSeed, int seedCount) throws IOException, InterruptedException, ExecutionException {
+        Configuration config = variant.config();
+        File file = new File(directory, variant.fileName());
+        directory.mkdirs();
+        long start = System.currentTimeMillis();
+        long turns = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(firstSeed);
+            out.writeInt(seedCount);
+            out.writeInt(config.HEROES_PER_PLAYER);
+            for (long from = firstSeed; from < firstSeed + seedCount; from += CHUNK_SIZE) {
+                for (StateTrace trace : playChunk(pool, config, from, Math.min(from + CHUNK_SIZE, firstSeed + seedCount))) {
+                    trace.write(out);
+                    turns += trace.getTurnCount() - 1;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println(
+            String.format(
+                "%s: recorded %d games, %d turns in %d ms to %s", variant, seedCount, turns, System.currentTimeMillis() - start, file
+            )
+        );
+    }
+
+    /**
+     * Replays the seeds of a golden file and reports the seeds whose games diverge from it.
+     *
+     * @return the number of divergent seeds
+     */
+    public int check(Variant variant) throws IOException, InterruptedException, ExecutionException {
+        Configuration config = variant.config();
+        File file = new File(directory, variant.fileName());
+        long start = System.currentTimeMillis();
+        int divergent = 0;
+        int seedCount;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a golden file of this version");
+            }
+            long firstSeed = in.readLong();
+            seedCount = in.readInt();
+            int heroesPerPlayer = in.readInt();
+            if (heroesPerPlayer != config.HEROES_PER_PLAYER) {
+                throw new IOException(file + " was recorded with " + heroesPerPlayer + " heroes per player");
+            }
+            for (long from = firstSeed; from < firstSeed + seedCount; from += CHUNK_SIZE) {
+                for (StateTrace trace : playChunk(pool, config, from, Math.min(from + CHUNK_SIZE, firstSeed + seedCount))) {
+                    StateTrace expected = StateTrace.read(in, PLAYER_COUNT, trace.heroCount);
+                    String divergence = trace.findDivergence(expected);
+                    if (divergence != null) {
+                        if (divergent < MAX_REPORTED) {
+                            System.out.println(variant + ": " + divergence);
+                        }
+                        divergent++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println(
+            String.format(
+                "%s: %d of %d seeds diverge, checked in %d ms", variant, divergent, seedCount, System.currentTimeMillis() - start
+            )
+        );
+        return divergent;
+    }
+
+    private static List<Variant> parseVariants(String name) {
+        if (name.equals("all")) {
+            return Arrays.asList(Variant.values());
+        }
+        return Arrays.asList(Variant.valueOf(name.toUpperCase()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("record") && args.length >= 4 || args[0].equals("check"))) {
+            System.err.println("Usage: GoldenHarness record <variant|all> <firstSeed> <seedCount> [directory]");
+            System.err.println("       GoldenHarness check <variant|all> [directory]");
+            System.err.println("Variants: " + Arrays.toString(Variant.values()).toLowerCase());
+            System.exit(2);
+        }
+        boolean record = args[0].equals("record");
+        int directoryArg = record ? 4 : 2;
+        GoldenHarness harness = new GoldenHarness(new File(args.length > directoryArg ? args[directoryArg] : DEFAULT_DIRECTORY));
+
+        int divergent = 0;
+        for (Variant variant : parseVariants(args[1])) {
+            if (record) {
+                harness.record(variant, Long.parseLong(args[2]), Integer.parseInt(args[3]));
+            } else {
+                divergent += harness.check(variant);
+            }
+        }
+        System.exit(divergent == 0 ? 0 : 1);
+    }
+}
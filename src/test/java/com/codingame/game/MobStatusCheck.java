@@ -0,0 +1,76 @@
+package com.codingame.game;
+
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Checks that {@link GameEngine#predictMobStatus(int, double, double, double, double)}, solved in closed form, agrees with
+ * {@link GameEngine#simulateMobStatus(int, double, double, double, double)}, which moves the mob turn by turn: state, target and turns
+ * of random mobs, on the map of every {@link GoldenHarness.Variant} and on a smaller one.
+ *
+ * <pre>
+ * MobStatusCheck [mobCount] [seed]
+ * </pre>
+ *
+ * Half of the mobs move as spawned mobs do, the others at any integer speed up to twice the mob speed. Positions go up to the limit of
+ * the map, outside of its visible part.
+ */
+public class MobStatusCheck {
+
+    private static final int PLAYER_COUNT = 2;
+    private static final int MAX_REPORTED = 20;
+
+    private long mobCount;
+    private long differingMobs;
+
+    private void check(String name, Configuration config, int mobs, Random random) {
+        GameEngine engine = new GameEngine(config, 0, PLAYER_COUNT);
+        EntityStore store = engine.getStore();
+        int mob = store.addMob(engine.ids.next(), 0, 0, config.MOB_STARTING_MAX_ENERGY);
+        int maxSpeed = 2 * config.MOB_MOVE_SPEED;
+        for (int i = 0; i < mobs; ++i) {
+            int x = random.nextInt(config.MAP_WIDTH + 2 * config.MAP_LIMIT + 1) - config.MAP_LIMIT;
+            int y = random.nextInt(config.MAP_HEIGHT + 2 * config.MAP_LIMIT + 1) - config.MAP_LIMIT;
+            int vx, vy;
+            if (random.nextBoolean()) {
+                double angle = random.nextDouble() * Math.PI * 2;
+                vx = (int) (Math.cos(angle) * config.MOB_MOVE_SPEED);
+                vy = (int) (Math.sin(angle) * config.MOB_MOVE_SPEED);
+            } else {
+                vx = random.nextInt(2 * maxSpeed + 1) - maxSpeed;
+                vy = random.nextInt(2 * maxSpeed + 1) - maxSpeed;
+            }
+            engine.predictMobStatus(mob, x, y, vx, vy);
+            String predicted = status(store, mob);
+            engine.simulateMobStatus(mob, x, y, vx, vy);
+            String simulated = status(store, mob);
+            mobCount++;
+            if (!predicted.equals(simulated) && ++differingMobs <= MAX_REPORTED) {
+                System.out.println(
+                    String.format(
+                        "%s: mob at %d %d moving by %d %d predicted %s, simulated %s", name, x, y, vx, vy, predicted, simulated
+                    )
+                );
+            }
+        }
+    }
+
+    private static String status(EntityStore store, int mob) {
+        return store.statusState[mob] + " " + store.statusTarget[mob] + " " + store.statusTurns[mob];
+    }
+
+    public static void main(String[] args) {
+        int mobs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        MobStatusCheck check = new MobStatusCheck();
+        for (GoldenHarness.Variant variant : GoldenHarness.Variant.values()) {
+            check.check(variant.name(), variant.config(), mobs, random);
+        }
+        Properties smallMap = new Properties();
+        smallMap.setProperty("MAP_WIDTH", "12000");
+        smallMap.setProperty("MAP_HEIGHT", "7000");
+        check.check("SMALL_MAP", new Configuration(smallMap, 3), mobs, random);
+        System.out.println(String.format("%d of %d mobs differ", check.differingMobs, check.mobCount));
+        System.exit(check.differingMobs == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,135 @@
+package com.codingame.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.codingame.view.Coord;
+import com.codingame.view.FrameViewData;
+import com.codingame.view.FrameViewData.EntityData;
+import com.codingame.view.Replay;
+import com.codingame.view.ViewFrames;
+
+/**
+ * Round trip check of the binary view frames: plays {@link ScriptedBot} games of every {@link GoldenHarness.Variant}, encodes the frame
+ * of every turn as the view module does, then rebuilds each frame with {@link Replay#getFrame(int)} and compares it with the state the
+ * engine had when the frame was sent. Positions, mana, health and entities must be complete whatever the keyframe before the frame, and
+ * the other fields must match the frame as it was built.
+ *
+ * <pre>
+ * ReplayCheck [seedCount] [keyframeInterval...]
+ * </pre>
+ *
+ * By default, 20 seeds with keyframes every frame, every 3 frames and every 20 frames, the default interval.
+ */
+public class ReplayCheck {
+
+    private static final int PLAYER_COUNT = 2;
+    private static final int MAX_REPORTED = 20;
+
+    private final ViewFrames viewFrames = new ViewFrames();
+    private long frameCount;
+    private long differingFrames;
+
+    /**
+     * @return the full state of the engine, with the fields of the frame that are not states
+     */
+    private static FrameViewData expectedFrame(GameEngine engine, FrameViewData sent) {
+        EntityStore store = engine.getStore();
+        FrameViewData data = new FrameViewData();
+        data.keyframe = sent.keyframe;
+        data.positions = new HashMap<>();
+        data.entities = new ArrayList<>();
+        data.mobHealth = new HashMap<>();
+        for (int e = 0; e < store.size; ++e) {
+            int id = store.id[e];
+            data.positions.put(id, new Coord((int) store.x[e], (int) store.y[e]));
+            EntityData entity = new EntityData();
+            entity.id = id;
+            entity.type = store.getType(e);
+            if (store.isMob(e)) {
+                entity.health = store.health[e];
+                data.mobHealth.put(id, store.health[e]);
+            }
+            data.entities.add(entity);
+        }
+        data.mana = new HashMap<>();
+        data.baseHealth = new HashMap<>();
+        for (PlayerState player : engine.getPlayers()) {
+            data.mana.put(player.getIndex(), player.getMana());
+            data.baseHealth.put(player.getIndex(), player.getBaseHealth());
+        }
+        data.removed = sent.removed;
+        data.messages = sent.messages;
+        data.controlled = sent.controlled;
+        data.pushed = sent.pushed;
+        data.shielded = sent.shielded;
+        data.spawns = sent.spawns;
+        data.attacks = sent.attacks;
+        data.baseAttacks = sent.baseAttacks;
+        data.spellUses = sent.spellUses;
+        return data;
+    }
+
+    /**
+     * Plays a game, sending a frame before the first turn and after each, as the view module does.
+     */
+    private void play(GoldenHarness.Variant variant, Configuration config, long seed, int keyframeInterval) {
+        GameEngine engine = new GameEngine(config, seed, PLAYER_COUNT);
+        Referee referee = new Referee();
+        referee.setEngine(engine);
+        ScriptedBot[] bots = new ScriptedBot[PLAYER_COUNT];
+        for (int i = 0; i < PLAYER_COUNT; ++i) {
+            bots[i] = new ScriptedBot(config, seed * 31 + i);
+            bots[i].init(engine.getGlobalInfoFor(i));
+        }
+        List<String> frames = new ArrayList<>();
+        List<Map<String, String>> expected = new ArrayList<>();
+        List<List<String>> outputs = new ArrayList<>(Arrays.asList(null, null));
+        while (true) {
+            FrameViewData sent = referee.getCurrentFrameData(frames.size() % keyframeInterval == 0);
+            expected.add(ViewFrames.describe(expectedFrame(engine, sent)));
+            frames.add(viewFrames.serialize(sent));
+            if (engine.isOver()) {
+                break;
+            }
+            for (int i = 0; i < PLAYER_COUNT; ++i) {
+                outputs.set(i, engine.getPlayer(i).isActive() ? bots[i].play(engine.getGameStateFor(i)) : null);
+            }
+            engine.step(outputs.get(0), outputs.get(1));
+        }
+
+        Replay replay = new Replay(frames);
+        for (int frame = 0; frame < frames.size(); ++frame) {
+            List<String> differences = ViewFrames.differences(expected.get(frame), replay.getFrame(frame));
+            frameCount++;
+            if (!differences.isEmpty() && ++differingFrames <= MAX_REPORTED) {
+                System.out.println(
+                    String.format(
+                        "%s seed %d, keyframes every %d: frame %d differs, %s", variant, seed, keyframeInterval, frame, differences
+                    )
+                );
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int seedCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int[] keyframeIntervals = args.length > 1
+            ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+            : new int[] { 1, 3, 20 };
+        ReplayCheck check = new ReplayCheck();
+        for (GoldenHarness.Variant variant : GoldenHarness.Variant.values()) {
+            Configuration config = variant.config();
+            for (int keyframeInterval : keyframeIntervals) {
+                for (long seed = 0; seed < seedCount; ++seed) {
+                    check.play(variant, config, seed, keyframeInterval);
+                }
+            }
+        }
+        System.out.println(String.format("%d of %d frames differ", check.differingFrames, check.frameCount));
+        System.exit(check.differingFrames == 0 ? 0 : 1);
+    }
+}
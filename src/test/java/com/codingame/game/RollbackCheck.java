@@ -0,0 +1,176 @@
+package com.codingame.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the state of a game can be rolled back: plays {@link ScriptedBot} games of every {@link GoldenHarness.Variant} and, before
+ * random turns, makes excursions with other bots:
+ * <ul>
+ * <li>takes a {@link GameEngine#snapshot()}, plays a few turns ahead, then restores it, sometimes several times;</li>
+ * <li>explores a random tree of turns with nested {@link GameEngine#mark()} and {@link GameEngine#undo()}, a turn per mark.</li>
+ * </ul>
+ * After each rollback, the state and the inputs of the players must be those before the excursion, and the whole game must follow the
+ * same course as {@link GoldenHarness#play(Configuration, long)} without any excursion.
+ *
+ * <pre>
+ * RollbackCheck [seedCount]
+ * </pre>
+ */
+public class RollbackCheck {
+
+    private static final int PLAYER_COUNT = 2;
+    private static final int MAX_EXCURSION_TURNS = 12;
+    private static final int MAX_DEPTH = 6;
+    private static final int MAX_BRANCHES = 2;
+    private static final int MAX_REPORTED = 20;
+
+    private final Random random;
+    private long rollbacks;
+    private long gameCount;
+    private long divergentGames;
+    private String failure;
+
+    RollbackCheck(Random random) {
+        this.random = random;
+    }
+
+    private static StateTrace trace(GameEngine engine, long seed) {
+        StateTrace trace = new StateTrace(seed, PLAYER_COUNT, PLAYER_COUNT * engine.getConfiguration().HEROES_PER_PLAYER);
+        trace.record(engine.snapshot(), Collections.emptyList());
+        return trace;
+    }
+
+    private static List<List<String>> inputs(GameEngine engine) {
+        List<List<String>> inputs = new ArrayList<>();
+        for (int i = 0; i < PLAYER_COUNT; ++i) {
+            inputs.add(engine.getGameStateFor(i));
+        }
+        return inputs;
+    }
+
+    /**
+     * Plays turns ahead with bots of their own, which do not disturb the bots of the game.
+     */
+    private void playAhead(Configuration config, GameEngine engine, int turns) {
+        ScriptedBot[] bots = new ScriptedBot[PLAYER_COUNT];
+        for (int i = 0; i < PLAYER_COUNT; ++i) {
+            bots[i] = new ScriptedBot(config, random.nextLong());
+            bots[i].init(engine.getGlobalInfoFor(i));
+        }
+        for (int turn = 0; turn < turns && !engine.isOver(); ++turn) {
+            List<String> output0 = engine.getPlayer(0).isActive() ? bots[0].play(engine.getGameStateFor(0)) : null;
+            List<String> output1 = engine.getPlayer(1).isActive() ? bots[1].play(engine.getGameStateFor(1)) : null;
+            engine.step(output0, output1);
+        }
+    }
+
+    /**
+     * Records a failure unless the engine is back in the given state.
+     */
+    private void expectState(GameEngine engine, long seed, StateTrace state, List<List<String>> inputs, String rollback) {
+        String divergence = trace(engine, seed).findDivergence(state);
+        if (divergence != null) {
+            // Without the seed and turn of the trace, which only has the one state
+            divergence = divergence.substring(divergence.indexOf(": ") + 2);
+        } else if (!inputs(engine).equals(inputs)) {
+            divergence = "inputs of the players differ";
+        }
+        if (divergence != null && failure == null) {
+            failure = String.format("seed %d, after %s on turn %d: %s", seed, rollback, engine.getTurn(), divergence);
+        }
+    }
+
+    private void snapshotExcursion(Configuration config, GameEngine engine, long seed) {
+        // Inputs first, as they begin the turn
+        List<List<String>> inputs = inputs(engine);
+        StateTrace state = trace(engine, seed);
+        GameSnapshot snapshot = engine.snapshot();
+        for (int restores = 1 + random.nextInt(3); restores > 0; --restores) {
+            playAhead(config, engine, 1 + random.nextInt(MAX_EXCURSION_TURNS));
+            engine.restore(snapshot);
+            rollbacks++;
+            expectState(engine, seed, state, inputs, "restore");
+        }
+    }
+
+    /**
+     * Marks, plays a turn, explores up to {@link #MAX_BRANCHES} turns after it down to the given depth, and undoes it.
+     */
+    private void explore(Configuration config, GameEngine engine, long seed, int depth) {
+        if (depth == 0 || engine.isOver()) {
+            return;
+        }
+        // Inputs first, as they begin the turn
+        List<List<String>> inputs = inputs(engine);
+        StateTrace state = trace(engine, seed);
+        engine.mark();
+        playAhead(config, engine, 1);
+        for (int branches = random.nextInt(MAX_BRANCHES); branches >= 0; --branches) {
+            explore(config, engine, seed, depth - 1);
+        }
+        engine.undo();
+        rollbacks++;
+        expectState(engine, seed, state, inputs, "undo at depth " + depth);
+    }
+
+    /**
+     * Plays a game as {@link GoldenHarness#play(Configuration, long)} does, with excursions before random turns.
+     */
+    private StateTrace play(Configuration config, long seed) {
+        GameEngine engine = new GameEngine(config, seed, PLAYER_COUNT);
+        StateTrace trace = new StateTrace(seed, PLAYER_COUNT, PLAYER_COUNT * config.HEROES_PER_PLAYER);
+        ScriptedBot[] bots = new ScriptedBot[PLAYER_COUNT];
+        for (int i = 0; i < PLAYER_COUNT; ++i) {
+            bots[i] = new ScriptedBot(config, seed * 31 + i);
+            bots[i].init(engine.getGlobalInfoFor(i));
+        }
+        GameSnapshot snapshot = engine.snapshot();
+        trace.record(snapshot, engine.getGameSummary());
+        List<List<String>> outputs = new ArrayList<>(Arrays.asList(null, null));
+        while (!engine.isOver()) {
+            for (int i = 0; i < PLAYER_COUNT; ++i) {
+                outputs.set(i, engine.getPlayer(i).isActive() ? bots[i].play(engine.getGameStateFor(i)) : null);
+            }
+            // Both kinds in turn, so that restoring also follows undos
+            if (random.nextInt(3) == 0) {
+                explore(config, engine, seed, 1 + random.nextInt(MAX_DEPTH));
+            }
+            if (random.nextInt(3) == 0) {
+                snapshotExcursion(config, engine, seed);
+            }
+            engine.step(outputs.get(0), outputs.get(1));
+            engine.snapshot(snapshot);
+            trace.record(snapshot, engine.getGameSummary());
+        }
+        trace.result = Arrays.hashCode(engine.computeScores()) * 31 + (engine.isTie() ? 1 : 0);
+        return trace;
+    }
+
+    private void check(GoldenHarness.Variant variant, long seed) {
+        Configuration config = variant.config();
+        failure = null;
+        String divergence = play(config, seed).findDivergence(GoldenHarness.play(config, seed));
+        gameCount++;
+        if ((failure != null || divergence != null) && ++divergentGames <= MAX_REPORTED) {
+            System.out.println(variant + ": " + (failure != null ? failure : divergence));
+        }
+    }
+
+    public static void main(String[] args) {
+        int seedCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        RollbackCheck check = new RollbackCheck(new Random(0));
+        for (GoldenHarness.Variant variant : GoldenHarness.Variant.values()) {
+            for (long seed = 0; seed < seedCount; ++seed) {
+                check.check(variant, seed);
+            }
+        }
+        System.out.println(
+            String.format("%d of %d games diverge, after %d rollbacks", check.divergentGames, check.gameCount, check.rollbacks)
+        );
+        System.exit(check.divergentGames == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.codingame.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A deterministic bot for the {@link GoldenHarness}, reading the same input as a real player. It defends its base most of the time and
+ * otherwise picks among every command the league accepts, including messages, spells on any entity and rare malformed lines, so that the
+ * games go through all the rules. Its choices only depend on its input and the seed of its generator.
+ */
+class ScriptedBot {
+
+    private final Random random;
+    private final Configuration config;
+    private int baseX, baseY;
+    private int heroesPerPlayer;
+
+    ScriptedBot(Configuration config, long seed) {
+        this.config = config;
+        this.random = new Random(seed);
+    }
+
+    void init(List<String> globalInfo) {
+        String[] base = globalInfo.get(0).split(" ");
+        baseX = Integer.parseInt(base[0]);
+        baseY = Integer.parseInt(base[1]);
+        heroesPerPlayer = Integer.parseInt(globalInfo.get(1));
+    }
+
+    List<String> play(List<String> state) {
+        int mana = Integer.parseInt(state.get(0).split(" ")[1]);
+        int entityCount = Integer.parseInt(state.get(2));
+        // id, type, x, y, shieldLife, isControlled, health, vx, vy, nearBase, threatFor
+        int[][] entities = new int[entityCount][];
+        List<int[]> heroes = new ArrayList<>();
+        for (int i = 0; i < entityCount; ++i) {
+            String[] tokens = state.get(3 + i).split(" ");
+            entities[i] = new int[tokens.length];
+            for (int k = 0; k < tokens.length; ++k) {
+                entities[i][k] = Integer.parseInt(tokens[k]);
+            }
+            if (entities[i][1] == GameEngine.INPUT_TYPE_MY_HERO) {
+                heroes.add(entities[i]);
+            }
+        }
+
+        int[] threat = closestThreat(entities);
+        List<String> lines = new ArrayList<>();
+        for (int h = 0; h < heroesPerPlayer; ++h) {
+            int[] hero = h < heroes.size() ? heroes.get(h) : null;
+            int[] target = entityCount == 0 ? null : entities[random.nextInt(entityCount)];
+            int roll = random.nextInt(10000);
+            if (roll < 5000 && threat != null) {
+                lines.add(defend(hero, threat, mana));
+            } else if (roll < 6500 && target != null) {
+                lines.add("MOVE " + target[2] + " " + target[3] + (random.nextBoolean() ? " hunting \u263A" : ""));
+            } else if (roll < 7500) {
+                lines.add("MOVE " + random.nextInt(config.MAP_WIDTH) + " " + random.nextInt(config.MAP_HEIGHT));
+            } else if (roll < 8300 && config.ENABLE_WIND) {
+                lines.add("SPELL WIND " + (random.nextInt(config.MAP_WIDTH + 2000) - 1000) + " " + random.nextInt(config.MAP_HEIGHT));
+            } else if (roll < 8800 && target != null && config.ENABLE_SHIELD) {
+                lines.add("SPELL SHIELD " + target[0]);
+            } else if (roll < 9400 && target != null && config.ENABLE_CONTROL) {
+                lines.add(
+                    "SPELL CONTROL " + target[0] + " " + random.nextInt(config.MAP_WIDTH) + " " + random.nextInt(config.MAP_HEIGHT) + " ctl"
+                );
+            } else if (roll < 9600 && config.ENABLE_CONTROL) {
+                // Usually an entity that cannot be seen
+                lines.add("SPELL CONTROL " + random.nextInt(300) + " 0 0");
+            } else if (roll < 9999) {
+                lines.add("WAIT  zz ");
+            } else {
+                // Deactivates the player
+                lines.add("MOVE here");
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return the mob heading for this base that is closest to it
+     */
+    private int[] closestThreat(int[][] entities) {
+        int[] closest = null;
+        long closestDistance = Long.MAX_VALUE;
+        for (int[] entity : entities) {
+            if (entity[1] == GameEngine.INPUT_TYPE_MOB && entity[10] == 1) {
+                long distance = distance2(entity, baseX, baseY);
+                if (distance < closestDistance) {
+                    closest = entity;
+                    closestDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    private String defend(int[] hero, int[] mob, int mana) {
+        long windRadius = config.SPELL_WIND_RADIUS;
+        long attractionRadius = config.BASE_ATTRACTION_RADIUS;
+        if (
+            hero != null && config.ENABLE_WIND && mana >= config.SPELL_WIND_COST && distance2(hero, mob[2], mob[3]) <= windRadius * windRadius
+                && distance2(mob, baseX, baseY) < attractionRadius * attractionRadius
+        ) {
+            return "SPELL WIND " + (config.MAP_WIDTH - baseX) + " " + (config.MAP_HEIGHT - baseY);
+        }
+        return "MOVE " + mob[2] + " " + mob[3];
+    }
+
+    private static long distance2(int[] entity, int x, int y) {
+        long dx = entity[2] - x;
+        long dy = entity[3] - y;
+        return dx * dx + dy * dy;
+    }
+}
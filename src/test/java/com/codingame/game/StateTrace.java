@@ -0,0 +1,269 @@
+package com.codingame.game;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashes of the state of a game after each turn, as recorded by the {@link GoldenHarness}. Each turn is stored as a header of
+ * {@value #HEADER} ints (counters, random state, game summary, all entities, entity count) followed by one int per player and two per
+ * entity: its id and an 8-bit hash of its row. The whole-store hash detects a divergence, the short ones point to the first entity that
+ * differs while keeping golden files small.
+ */
+class StateTrace {
+
+    private static final int COUNTERS = 0;
+    private static final int RANDOM = 1;
+    private static final int SUMMARY = 2;
+    private static final int ENTITIES = 3;
+    private static final int ENTITY_COUNT = 4;
+    static final int HEADER = 5;
+
+    final long seed;
+    final int playerCount;
+    /** Heroes keep the first slots of the store */
+    final int heroCount;
+    /** Hash of the scores and tie-break of the game */
+    int result;
+    private int[] data = new int[4096];
+    private int size;
+    private int[] turnStart = new int[256];
+    private int turnCount;
+
+    StateTrace(long seed, int playerCount, int heroCount) {
+        this.seed = seed;
+        this.playerCount = playerCount;
+        this.heroCount = heroCount;
+    }
+
+    int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * Appends the hashes of the state copied in a snapshot, along with the summary of the turn that led to it.
+     */
+    void record(GameSnapshot state, List<String> summary) {
+        EntityStore store = state.store;
+        beginTurn();
+        long counters = mix(mix(mix(mix(state.turn, state.turnStarted ? 1 : 0), state.idCount), state.lastSpawn),
+            Double.doubleToLongBits(state.currentMaxHealth));
+        add(fold(counters));
+        add(fold(mix(0, state.randomState)));
+        long summaryHash = 0;
+        for (String line : summary) {
+            summaryHash = mix(summaryHash, line.hashCode());
+        }
+        add(fold(summaryHash));
+        int entitiesField = size;
+        add(0);
+        add(store.size);
+        for (PlayerState player : state.players) {
+            add(fold(hash(player)));
+        }
+        long entities = 0;
+        for (int e = 0; e < store.size; ++e) {
+            long h = hash(store, e);
+            entities = mix(entities, h);
+            add(store.id[e]);
+            add((int) (h >>> 56));
+        }
+        data[entitiesField] = fold(entities);
+    }
+
+    private static long hash(PlayerState player) {
+        long h = mix(mix(mix(player.getMana(), player.getBaseHealth()), player.getManaGainedOutsideOfBase()), player.isActive() ? 1 : 0);
+        h = mix(h, player.getDeactivationReason() == null ? 0 : player.getDeactivationReason().hashCode());
+        long spotted = 0;
+        for (int id : player.spotted) {
+            spotted += mix(0, id);
+        }
+        return mix(h, spotted);
+    }
+
+    /**
+     * @return a hash of everything the store keeps about an entity, but its cached mob status
+     */
+    private static long hash(EntityStore store, int e) {
+        long h = mix(mix(store.id[e], store.owner[e]), store.health[e]);
+        h = mix(mix(h, Double.doubleToLongBits(store.x[e])), Double.doubleToLongBits(store.y[e]));
+        h = mix(mix(h, Double.doubleToLongBits(store.vx[e])), Double.doubleToLongBits(store.vy[e]));
+        h = mix(mix(h, store.shieldDuration[e]), store.flags[e]);
+        h = mix(h, store.controlCount[e]);
+        for (int k = e * store.maxControls; k < e * store.maxControls + store.controlCount[e]; ++k) {
+            h = mix(mix(h, Double.doubleToLongBits(store.controlX[k])), Double.doubleToLongBits(store.controlY[k]));
+        }
+        h = mix(h, store.nextControlCount[e]);
+        for (int k = e * store.maxControls; k < e * store.maxControls + store.nextControlCount[e]; ++k) {
+            h = mix(mix(h, Double.doubleToLongBits(store.nextControlX[k])), Double.doubleToLongBits(store.nextControlY[k]));
+        }
+        return mix(h, 0);
+    }
+
+    static long mix(long h, long value) {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 32);
+    }
+
+    private static int fold(long h) {
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void beginTurn() {
+        if (turnCount == turnStart.length) {
+            turnStart = Arrays.copyOf(turnStart, turnCount * 2);
+        }
+        turnStart[turnCount++] = size;
+    }
+
+    private void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    private int get(int turn, int field) {
+        return data[turnStart[turn] + field];
+    }
+
+    private int entityCount(int turn) {
+        return get(turn, ENTITY_COUNT);
+    }
+
+    private int entityId(int turn, int entity) {
+        return get(turn, HEADER + playerCount + 2 * entity);
+    }
+
+    private int entityHash(int turn, int entity) {
+        return get(turn, HEADER + playerCount + 2 * entity + 1);
+    }
+
+    /**
+     * @return a description of the first difference between this trace and the expected one, or <code>null</code> if they are the same
+     */
+    String findDivergence(StateTrace expected) {
+        int turns = Math.min(turnCount, expected.turnCount);
+        for (int t = 0; t < turns; ++t) {
+            String difference = findDivergence(expected, t);
+            if (difference != null) {
+                return String.format("seed %d, %s: %s", seed, t == 0 ? "initial state" : "after turn " + t, difference);
+            }
+        }
+        if (turnCount != expected.turnCount) {
+            return String.format("seed %d: game over after %d turns, expected %d", seed, turnCount - 1, expected.turnCount - 1);
+        }
+        if (result != expected.result) {
+            return String.format("seed %d: scores differ", seed);
+        }
+        return null;
+    }
+
+    private String findDivergence(StateTrace expected, int t) {
+        if (get(t, COUNTERS) != expected.get(t, COUNTERS)) {
+            return "turn, entity id or spawn counters differ";
+        }
+        if (get(t, RANDOM) != expected.get(t, RANDOM)) {
+            return "random generator state differs";
+        }
+        for (int i = 0; i < playerCount; ++i) {
+            if (get(t, HEADER + i) != expected.get(t, HEADER + i)) {
+                return "player " + i + " differs (mana, base health, status or spotted mobs)";
+            }
+        }
+        if (get(t, ENTITIES) != expected.get(t, ENTITIES)) {
+            return findEntityDivergence(expected, t);
+        }
+        if (get(t, SUMMARY) != expected.get(t, SUMMARY)) {
+            return "game summary differs";
+        }
+        return null;
+    }
+
+    private String findEntityDivergence(StateTrace expected, int t) {
+        int count = entityCount(t);
+        int expectedCount = expected.entityCount(t);
+        for (int e = 0; e < Math.min(count, expectedCount); ++e) {
+            int id = entityId(t, e);
+            int expectedId = expected.entityId(t, e);
+            if (id != expectedId) {
+                return String.format("slot %d holds entity %d, expected entity %d", e, id, expectedId);
+            }
+            if (entityHash(t, e) != expected.entityHash(t, e)) {
+                return String.format("entity %d (%s, slot %d) differs", id, e < heroCount ? "hero" : "mob", e);
+            }
+        }
+        if (count != expectedCount) {
+            int e = Math.min(count, expectedCount);
+            return count > expectedCount ? "unexpected entity " + entityId(t, e) : "missing entity " + expected.entityId(t, e);
+        }
+        return "an entity differs, but its short hash does not tell which";
+    }
+
+    /**
+     * Writes the trace with entity ids as deltas and entity hashes as bytes, which is what the golden files are made of.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(seed);
+        out.writeInt(turnCount);
+        out.writeInt(result);
+        for (int t = 0; t < turnCount; ++t) {
+            for (int i = 0; i < HEADER + playerCount; ++i) {
+                out.writeInt(get(t, i));
+            }
+            int previousId = -1;
+            for (int e = 0; e < entityCount(t); ++e) {
+                int id = entityId(t, e);
+                writeVarInt(out, id - previousId - 1);
+                previousId = id;
+                out.writeByte(entityHash(t, e));
+            }
+        }
+    }
+
+    static StateTrace read(DataInputStream in, int playerCount, int heroCount) throws IOException {
+        StateTrace trace = new StateTrace(in.readLong(), playerCount, heroCount);
+        int turns = in.readInt();
+        trace.result = in.readInt();
+        for (int t = 0; t < turns; ++t) {
+            trace.beginTurn();
+            for (int i = 0; i < HEADER + playerCount; ++i) {
+                trace.add(in.readInt());
+            }
+            int previousId = -1;
+            for (int e = 0; e < trace.entityCount(t); ++e) {
+                int id = previousId + 1 + readVarInt(in);
+                trace.add(id);
+                trace.add(in.readUnsignedByte());
+                previousId = id;
+            }
+        }
+        return trace;
+    }
+
+    /** Zigzag encoding: ids only go backwards if the store order changes, which is itself a divergence */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
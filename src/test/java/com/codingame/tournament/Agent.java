@@ -0,0 +1,30 @@
+package com.codingame.tournament;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A bot taking part in a game, speaking the same line protocol as on CodinGame.
+ */
+public interface Agent extends AutoCloseable {
+
+    /**
+     * Sends the input of a turn and waits for the bot's answer.
+     *
+     * @param inputLines
+     *            lines sent to the bot
+     * @param outputLineCount
+     *            number of lines the bot must print
+     * @param timeoutMillis
+     *            time the bot has to print them, from when its input is sent
+     * @return the lines printed by the bot
+     * @throws TurnTimeoutException
+     *             if the bot did not answer in time
+     * @throws IOException
+     *             if the bot could not answer, for instance because it exited
+     */
+    List<String> execute(List<String> inputLines, int outputLineCount, long timeoutMillis) throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,82 @@
+package com.codingame.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A contestant of a tournament: a name and a way to start a fresh {@link Agent} for each game.
+ */
+public class Bot {
+
+    public interface AgentFactory {
+        Agent newAgent() throws IOException;
+    }
+
+    private String name;
+    private AgentFactory factory;
+
+    public Bot(String name, AgentFactory factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Agent newAgent() throws IOException {
+        return factory.newAgent();
+    }
+
+    /**
+     * @return a bot running the given command line in a child process
+     */
+    public static Bot ofCommand(String name, String command) {
+        return new Bot(name, () -> new ProcessAgent(command));
+    }
+
+    /**
+     * @return a bot whose processes play several games each, see {@link ProcessPool}
+     */
+    public static Bot ofPooledCommand(String name, String command) {
+        return new Bot(name, new ProcessPool(command));
+    }
+
+    /**
+     * @return a single-file Python bot, whose interpreters play several games each through the wrapper of the process pool
+     */
+    public static Bot ofPooledPythonFile(String name, String botFile) {
+        return ofPooledCommand(name, "python3 " + ProcessPool.PYTHON_WRAPPER + " " + botFile);
+    }
+
+    /**
+     * Compiles a single-file Java bot whose main class is <code>Player</code>, as on CodinGame.
+     */
+    public static Bot ofJavaFile(String name, String botFile) throws IOException, InterruptedException {
+        return ofCommand(name, "java -cp " + compile(botFile).getAbsolutePath() + " Player");
+    }
+
+    /**
+     * Compiles a single-file Java bot and runs it in this JVM, see {@link InProcessAgent}.
+     *
+     * @param reuseClasses
+     *            whether the bot can play several games with the same classes, which is only safe if it sets up all its static fields
+     *            in <code>main</code>
+     */
+    public static Bot ofJavaFileInProcess(String name, String botFile, boolean reuseClasses) throws IOException, InterruptedException {
+        return new Bot(name, new InProcessAgent.ClassPool(compile(botFile), "Player", reuseClasses));
+    }
+
+    private static File compile(String botFile) throws IOException, InterruptedException {
+        File outFolder = Files.createTempDirectory("bot").toFile();
+
+        Process compileProcess = new ProcessBuilder("javac", "-encoding", "UTF-8", botFile, "-d", outFolder.getAbsolutePath())
+            .inheritIO()
+            .start();
+        if (compileProcess.waitFor() != 0) {
+            throw new IOException("Could not compile " + botFile);
+        }
+        return outFolder;
+    }
+}
@@ -0,0 +1,406 @@
+package com.codingame.tournament;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a Java bot in the tournament's JVM: its <code>main</code> method runs on a thread of its own, whose <code>System.in</code> and
+ * <code>System.out</code> are routed to in-memory pipes, and whose <code>System.err</code> is discarded as for a {@link ProcessAgent}.
+ * Other threads keep the real streams.
+ * <p>
+ * The classes of the bot are loaded by a {@link ClassPool}, which hands them to the next game once a game is over. Bots then stay
+ * JIT-compiled from one game to the next, but their static fields keep the values of the previous game: only reuse the classes of bots
+ * that set them all up in <code>main</code>. A bot calling <code>System.exit</code> stops the tournament.
+ * <p>
+ * A bot that does not answer in time loses the game, but its thread cannot be stopped: if it still runs once the game is over, it is
+ * reported on <code>System.err</code> and listed by {@link #getRunawayThreads()}.
+ */
+public class InProcessAgent implements Agent {
+
+    /**
+     * Loaded copies of the classes of a bot. Games played at the same time each need their own copy, so there are as many copies as
+     * concurrent games.
+     */
+    public static class ClassPool implements Bot.AgentFactory {
+
+        private final URL[] classPath;
+        private final String mainClass;
+        private final boolean reuseClasses;
+        private final Queue<Method> idle = new ConcurrentLinkedQueue<>();
+
+        /**
+         * @param reuseClasses
+         *            whether to run the next games with the same classes, or to load them again for each game
+         */
+        public ClassPool(File classFolder, String mainClass, boolean reuseClasses) throws IOException {
+            this.classPath = new URL[] { classFolder.toURI().toURL() };
+            this.mainClass = mainClass;
+            this.reuseClasses = reuseClasses;
+        }
+
+        @Override
+        public Agent newAgent() throws IOException {
+            Method main = idle.poll();
+            if (main == null) {
+                main = load();
+            }
+            return new InProcessAgent(main, this);
+        }
+
+        private Method load() throws IOException {
+            try {
+                ClassLoader loader = new BotClassLoader(classPath, InProcessAgent.class.getClassLoader());
+                Method main = Class.forName(mainClass, false, loader).getDeclaredMethod("main", String[].class);
+                main.setAccessible(true);
+                return main;
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Could not load " + mainClass, e);
+            }
+        }
+
+        void release(Method main) {
+            if (reuseClasses) {
+                idle.add(main);
+            }
+        }
+    }
+
+    /**
+     * Loads the classes of the bot before those of the tournament, whose class path may hold classes of the same name, such as another
+     * <code>Player</code>.
+     */
+    private static class BotClassLoader extends URLClassLoader {
+
+        BotClassLoader(URL[] classPath, ClassLoader parent) {
+            super(classPath, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        loaded = super.loadClass(name, false);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    private static final long EXIT_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long CLOSE_MILLIS = 1000;
+
+    /** Threads of bots still running after their game */
+    private static final Set<Thread> RUNAWAY = ConcurrentHashMap.newKeySet();
+
+    /** Agent whose bot runs on the current thread, inherited by the threads the bot starts */
+    private static final InheritableThreadLocal<InProcessAgent> CURRENT = new InheritableThreadLocal<>();
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static boolean streamsRouted;
+
+    private final ClassPool pool;
+    private final Method main;
+    private final InputPipe input = new InputPipe();
+    private final BlockingQueue<String> outputLines = new LinkedBlockingQueue<>();
+    private final OutputStream output = new LineSplitter(outputLines);
+    private final Thread thread;
+
+    private InProcessAgent(Method main, ClassPool pool) {
+        this.main = main;
+        this.pool = pool;
+        routeStreams();
+        thread = new Thread(this::run, "bot-" + main.getDeclaringClass().getName() + "-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        CURRENT.set(this);
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } catch (Throwable e) {
+            // The bot crashed, or stopped reading once its input was closed
+        }
+    }
+
+    private static synchronized void routeStreams() {
+        if (streamsRouted) {
+            return;
+        }
+        InputStream in = System.in;
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        System.setIn(new RoutedInputStream(in));
+        System.setOut(new PrintStream(new RoutedOutputStream(out, false), true));
+        System.setErr(new PrintStream(new RoutedOutputStream(err, true), true));
+        streamsRouted = true;
+    }
+
+    @Override
+    public List<String> execute(List<String> inputLines, int outputLineCount, long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        StringBuilder text = new StringBuilder();
+        for (String line : inputLines) {
+            text.append(line).append('\n');
+        }
+        input.write(text.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<String> outputs = new ArrayList<>(outputLineCount);
+        try {
+            while (outputs.size() < outputLineCount) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TurnTimeoutException(outputs.size(), outputLineCount, timeoutMillis);
+                }
+                // Not longer than the exit of the bot takes to notice
+                String line = outputLines.poll(Math.min(remaining, EXIT_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                if (line != null) {
+                    outputs.add(line);
+                } else if (!thread.isAlive() && outputLines.isEmpty()) {
+                    throw new EOFException("Bot exited");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        return outputs;
+    }
+
+    /**
+     * Ends the input of the bot and waits for it to return. Its classes go back to the pool unless it is still running, in which case it
+     * is reported as a runaway.
+     */
+    @Override
+    public void close() {
+        input.close();
+        thread.interrupt();
+        try {
+            thread.join(CLOSE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!thread.isAlive()) {
+            pool.release(main);
+        } else {
+            RUNAWAY.add(thread);
+            System.err.println(
+                "Bot thread " + thread.getName() + " still runs " + CLOSE_MILLIS + " ms after its game, and will for the rest of the JVM"
+            );
+        }
+    }
+
+    /**
+     * @return the names of the threads of bots that still run after their game, which keep using a core
+     */
+    public static List<String> getRunawayThreads() {
+        List<String> names = new ArrayList<>();
+        for (Thread thread : RUNAWAY) {
+            if (thread.isAlive()) {
+                names.add(thread.getName());
+            } else {
+                RUNAWAY.remove(thread);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Bytes written by the tournament and read by the bot. Reads block until some input is available or the pipe is closed.
+     */
+    private static class InputPipe extends InputStream {
+
+        private byte[] buffer = new byte[4096];
+        private int start, end;
+        private boolean closed;
+
+        synchronized void write(byte[] bytes) {
+            if (end + bytes.length > buffer.length) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                if (end + bytes.length > buffer.length) {
+                    byte[] larger = new byte[Math.max(buffer.length * 2, end + bytes.length)];
+                    System.arraycopy(buffer, 0, larger, 0, end);
+                    buffer = larger;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, end, bytes.length);
+            end += bytes.length;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        private void awaitInput() throws IOException {
+            try {
+                while (start == end && !closed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            awaitInput();
+            return start == end ? -1 : buffer[start++] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            awaitInput();
+            if (start == end) {
+                return -1;
+            }
+            int count = Math.min(len, end - start);
+            System.arraycopy(buffer, start, b, off, count);
+            start += count;
+            return count;
+        }
+
+        @Override
+        public synchronized int available() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Cuts what the bot prints into lines, without their line terminator.
+     */
+    private static class LineSplitter extends OutputStream {
+
+        private final BlockingQueue<String> lines;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+
+        LineSplitter(BlockingQueue<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                lines.add(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; ++i) {
+                write(b[i]);
+            }
+        }
+    }
+
+    private static class RoutedInputStream extends InputStream {
+
+        private final InputStream fallback;
+
+        RoutedInputStream(InputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        private InputStream target() {
+            InProcessAgent agent = CURRENT.get();
+            return agent == null ? fallback : agent.input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return target().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return target().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return target().available();
+        }
+    }
+
+    private static class RoutedOutputStream extends OutputStream {
+
+        private final OutputStream fallback;
+        /** Whether bots write to this stream, or only other threads */
+        private final boolean discardBots;
+
+        RoutedOutputStream(OutputStream fallback, boolean discardBots) {
+            this.fallback = fallback;
+            this.discardBots = discardBots;
+        }
+
+        private OutputStream target() {
+            InProcessAgent agent = CURRENT.get();
+            if (agent == null) {
+                return fallback;
+            }
+            return discardBots ? null : agent.output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            OutputStream target = target();
+            if (target != null) {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputStream target = target();
+            if (target != null) {
+                target.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            OutputStream target = target();
+            if (target != null) {
+                target.flush();
+            }
+        }
+    }
+}
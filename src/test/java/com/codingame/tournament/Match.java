@@ -0,0 +1,125 @@
+package com.codingame.tournament;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.codingame.game.Configuration;
+import com.codingame.game.GameEngine;
+import com.codingame.game.TurnProfiler;
+
+/**
+ * A single headless game between two bots.
+ */
+public class Match {
+
+    /** Time a bot has to answer a turn, as on CodinGame */
+    public static final long TURN_MAX_MILLIS = 50;
+    /** Time a bot has to answer the first turn, which includes its start */
+    public static final long FIRST_TURN_MAX_MILLIS = 1000;
+
+    public static class Result {
+        public Bot[] bots;
+        public long seed;
+        public int[] scores;
+        public boolean tie;
+        /** Durations of the turns, when profiling is enabled */
+        public TurnProfiler profiler;
+        /**
+         * Bytes allocated by each phase then each section of each turn, see {@link TurnProfiler#getTurnAllocations()}, when allocations
+         * are profiled
+         */
+        public long[][] allocatedBytes;
+
+        /**
+         * @return the index of the winner, or -1 on a draw
+         */
+        public int getWinner() {
+            if (scores[0] == scores[1]) {
+                return -1;
+            }
+            return scores[0] > scores[1] ? 0 : 1;
+        }
+    }
+
+    private Configuration config;
+    private Bot[] bots;
+    private long seed;
+    private long firstTurnMaxMillis = FIRST_TURN_MAX_MILLIS;
+    private long turnMaxMillis = TURN_MAX_MILLIS;
+
+    public Match(Configuration config, Bot bot0, Bot bot1, long seed) {
+        this.config = config;
+        this.bots = new Bot[] { bot0, bot1 };
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the time bots have to answer, which is worth raising when games run on more threads than there are cores.
+     */
+    public void setTurnMaxMillis(long firstTurnMaxMillis, long turnMaxMillis) {
+        this.firstTurnMaxMillis = firstTurnMaxMillis;
+        this.turnMaxMillis = turnMaxMillis;
+    }
+
+    public Result play() {
+        GameEngine engine = new GameEngine(config, seed, 2);
+        if (TurnProfiler.ENABLED) {
+            engine.setProfiler(new TurnProfiler());
+        }
+        Agent[] agents = new Agent[2];
+        try {
+            for (int i = 0; i < 2; ++i) {
+                try {
+                    agents[i] = bots[i].newAgent();
+                } catch (IOException e) {
+                    engine.getPlayer(i).deactivate("Could not start: " + e.getMessage());
+                }
+            }
+
+            boolean firstTurn = true;
+            while (!engine.isOver()) {
+                List<List<String>> outputs = new ArrayList<>();
+                for (int i = 0; i < 2; ++i) {
+                    outputs.add(engine.getPlayer(i).isActive() ? execute(engine, agents[i], i, firstTurn) : null);
+                }
+                engine.step(outputs.get(0), outputs.get(1));
+                firstTurn = false;
+            }
+
+            Result result = new Result();
+            result.bots = bots;
+            result.seed = seed;
+            result.scores = engine.computeScores();
+            result.tie = engine.isTie();
+            result.profiler = engine.getProfiler();
+            if (result.profiler != null) {
+                result.allocatedBytes = result.profiler.getTurnAllocations();
+            }
+            return result;
+        } finally {
+            for (Agent agent : agents) {
+                if (agent != null) {
+                    agent.close();
+                }
+            }
+        }
+    }
+
+    private List<String> execute(GameEngine engine, Agent agent, int playerIndex, boolean firstTurn) {
+        List<String> inputs = new ArrayList<>();
+        if (firstTurn) {
+            inputs.addAll(engine.getGlobalInfoFor(playerIndex));
+        }
+        inputs.addAll(engine.getGameStateFor(playerIndex));
+        try {
+            return agent.execute(inputs, config.HEROES_PER_PLAYER, firstTurn ? firstTurnMaxMillis : turnMaxMillis);
+        } catch (TurnTimeoutException e) {
+            engine.getPlayer(playerIndex).deactivate("Timeout!");
+            return null;
+        } catch (IOException e) {
+            engine.getPlayer(playerIndex).deactivate("Could not answer: " + e.getMessage());
+            return null;
+        }
+    }
+}
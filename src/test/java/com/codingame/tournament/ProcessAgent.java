@@ -0,0 +1,113 @@
+package com.codingame.tournament;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a bot as a child process, for a single game unless it is kept by a {@link ProcessPool}.
+ * <p>
+ * A thread of its own reads what the process prints, so that a bot that does not answer in time only costs its turn deadline.
+ */
+public class ProcessAgent implements Agent {
+
+    private static final File NULL_FILE = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+    /** Queued once the output of the process ends, compared by identity */
+    private static final String END_OF_OUTPUT = new String("END_OF_OUTPUT");
+
+    private Process process;
+    private BufferedWriter in;
+    private final BlockingQueue<String> outputLines = new LinkedBlockingQueue<>();
+
+    public ProcessAgent(String command) throws IOException {
+        process = new ProcessBuilder("bash", "-c", command)
+            .redirectError(Redirect.appendTo(NULL_FILE))
+            .start();
+        in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        Thread reader = new Thread(() -> readLines(out), "bot-output-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readLines(BufferedReader out) {
+        try {
+            String line;
+            while ((line = out.readLine()) != null) {
+                outputLines.add(line);
+            }
+        } catch (IOException e) {
+            // The process was killed
+        } finally {
+            outputLines.add(END_OF_OUTPUT);
+        }
+    }
+
+    @Override
+    public List<String> execute(List<String> inputLines, int outputLineCount, long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (String line : inputLines) {
+            in.write(line);
+            in.newLine();
+        }
+        in.flush();
+
+        List<String> outputs = new ArrayList<>(outputLineCount);
+        for (int i = 0; i < outputLineCount; ++i) {
+            String line = receive(deadline);
+            if (line == null) {
+                throw new TurnTimeoutException(i, outputLineCount, timeoutMillis);
+            }
+            outputs.add(line);
+        }
+        return outputs;
+    }
+
+    void send(String line) throws IOException {
+        in.write(line);
+        in.newLine();
+        in.flush();
+    }
+
+    /**
+     * @param deadline
+     *            {@link System#nanoTime()} after which to give up
+     * @return the next line printed by the process, or <code>null</code> if it has not printed one by the deadline
+     */
+    String receive(long deadline) throws IOException {
+        String line;
+        try {
+            line = outputLines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (line == END_OF_OUTPUT) {
+            // For the next calls
+            outputLines.add(END_OF_OUTPUT);
+            throw new EOFException("Bot exited");
+        }
+        return line;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        process.destroyForcibly();
+    }
+}
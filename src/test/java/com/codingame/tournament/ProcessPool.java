@@ -0,0 +1,113 @@
+package com.codingame.tournament;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the processes of a bot running from one game to the next, for bots whose start costs more than a game, such as interpreted
+ * ones. There are as many processes as games played at the same time.
+ * <p>
+ * Before each game, the pool sends a {@value #NEW_GAME} line and waits for a {@value #READY} line, skipping whatever the bot printed for
+ * the previous game. The bot must then forget the previous game and read the input of the new one, as if it had just started. Bots
+ * that cannot do so themselves run behind a wrapper: {@value #PYTHON_WRAPPER} does it for single-file Python bots.
+ * <p>
+ * A process that failed or ran out of time during a game is killed rather than reused. The remaining processes are killed when the JVM exits.
+ */
+public class ProcessPool implements Bot.AgentFactory {
+
+    static final String NEW_GAME = "NEW_GAME";
+    static final String READY = "READY";
+    static final String PYTHON_WRAPPER = "src/test/resources/pool/python_wrapper.py";
+    /** Time a process has to answer {@value #NEW_GAME}, including its start */
+    static final long READY_MILLIS = 5000;
+
+    private final String command;
+    private final Queue<ProcessAgent> idle = new ConcurrentLinkedQueue<>();
+    private final Set<ProcessAgent> started = ConcurrentHashMap.newKeySet();
+
+    public ProcessPool(String command) {
+        this.command = command;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    @Override
+    public Agent newAgent() throws IOException {
+        ProcessAgent process = idle.poll();
+        while (process != null && !process.isAlive()) {
+            discard(process);
+            process = idle.poll();
+        }
+        if (process == null) {
+            process = new ProcessAgent(command);
+            started.add(process);
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READY_MILLIS);
+            process.send(NEW_GAME);
+            String line;
+            while (!READY.equals(line = process.receive(deadline))) {
+                if (line == null) {
+                    throw new IOException("No " + READY + " line in " + READY_MILLIS + " ms");
+                }
+                // Output of the previous game
+            }
+        } catch (IOException e) {
+            discard(process);
+            throw e;
+        }
+        return new PooledAgent(process);
+    }
+
+    private void discard(ProcessAgent process) {
+        started.remove(process);
+        process.close();
+    }
+
+    /**
+     * Kills the processes of the pool, even those playing a game.
+     */
+    public void close() {
+        for (ProcessAgent process : started) {
+            process.close();
+        }
+        started.clear();
+        idle.clear();
+    }
+
+    private class PooledAgent implements Agent {
+
+        private final ProcessAgent process;
+        private boolean failed;
+
+        PooledAgent(ProcessAgent process) {
+            this.process = process;
+        }
+
+        @Override
+        public List<String> execute(List<String> inputLines, int outputLineCount, long timeoutMillis) throws IOException {
+            try {
+                return process.execute(inputLines, outputLineCount, timeoutMillis);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Gives the process back to the pool for the next game.
+         */
+        @Override
+        public void close() {
+            if (failed || !process.isAlive()) {
+                discard(process);
+            } else {
+                idle.add(process);
+            }
+        }
+    }
+}
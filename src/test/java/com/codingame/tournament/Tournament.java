@@ -0,0 +1,161 @@
+package com.codingame.tournament;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import com.codingame.game.Configuration;
+import com.codingame.game.TurnProfiler;
+
+/**
+ * Plays every ordered pair of bots on a range of seeds, spreading the games over a fork-join pool.
+ */
+public class Tournament {
+
+    public static class Standing {
+        public String name;
+        public int games, wins, draws, losses;
+        public long points;
+        /** Games decided, or drawn, on the mana gained outside of the base */
+        public int tieBreaks;
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (wins + draws / 2d) / games;
+        }
+    }
+
+    private List<Bot> bots;
+    private Configuration config;
+    private long firstSeed;
+    private int seedCount;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long firstTurnMaxMillis = Match.FIRST_TURN_MAX_MILLIS;
+    private long turnMaxMillis = Match.TURN_MAX_MILLIS;
+
+    public Tournament(List<Bot> bots, Configuration config, long firstSeed, int seedCount) {
+        this.bots = bots;
+        this.config = config;
+        this.firstSeed = firstSeed;
+        this.seedCount = seedCount;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @see Match#setTurnMaxMillis(long, long)
+     */
+    public void setTurnMaxMillis(long firstTurnMaxMillis, long turnMaxMillis) {
+        this.firstTurnMaxMillis = firstTurnMaxMillis;
+        this.turnMaxMillis = turnMaxMillis;
+    }
+
+    public List<Match> getMatches() {
+        List<Match> matches = new ArrayList<>();
+        for (long seed = firstSeed; seed < firstSeed + seedCount; ++seed) {
+            for (Bot a : bots) {
+                for (Bot b : bots) {
+                    if (a != b) {
+                        Match match = new Match(config, a, b, seed);
+                        match.setTurnMaxMillis(firstTurnMaxMillis, turnMaxMillis);
+                        matches.add(match);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    public List<Match.Result> play() throws InterruptedException, ExecutionException {
+        List<Match> matches = getMatches();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(
+                () -> matches.parallelStream()
+                    .map(Match::play)
+                    .collect(Collectors.toList())
+            ).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public List<Standing> computeStandings(List<Match.Result> results) {
+        Map<Bot, Standing> standings = new LinkedHashMap<>();
+        for (Bot bot : bots) {
+            Standing standing = new Standing();
+            standing.name = bot.getName();
+            standings.put(bot, standing);
+        }
+        for (Match.Result result : results) {
+            int winner = result.getWinner();
+            for (int i = 0; i < 2; ++i) {
+                Standing standing = standings.get(result.bots[i]);
+                standing.games++;
+                standing.points += result.scores[i];
+                if (result.tie) {
+                    standing.tieBreaks++;
+                }
+                if (winner == -1) {
+                    standing.draws++;
+                } else if (winner == i) {
+                    standing.wins++;
+                } else {
+                    standing.losses++;
+                }
+            }
+        }
+        return new ArrayList<>(standings.values());
+    }
+
+    /**
+     * @return the durations of the turns of all the games, when profiling is enabled
+     */
+    public TurnProfiler computeProfile(List<Match.Result> results) {
+        TurnProfiler profile = new TurnProfiler();
+        for (Match.Result result : results) {
+            if (result.profiler != null) {
+                profile.merge(result.profiler);
+            }
+        }
+        return profile;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int leagueLevel = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int seedCount = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        List<Bot> bots = new ArrayList<>();
+        bots.add(Bot.ofJavaFileInProcess("Boss", "config/Boss.java", true));
+        // Draws its moves from a static generator, which must start over every game
+        bots.add(Bot.ofJavaFileInProcess("Boss level 1", "config/level1/Boss.java", false));
+        bots.add(Bot.ofJavaFileInProcess("Boss level 2", "config/level2/Boss.java", true));
+
+        Tournament tournament = new Tournament(bots, new Configuration(new Properties(), leagueLevel), firstSeed, seedCount);
+        long start = System.currentTimeMillis();
+        List<Match.Result> results = tournament.play();
+        System.out.println(results.size() + " games in " + (System.currentTimeMillis() - start) + " ms");
+        for (Standing s : tournament.computeStandings(results)) {
+            System.out.println(
+                String.format(
+                    "%-16s %5.1f%% %6d games %6d W %6d D %6d L %8d points %6d tie-breaks",
+                    s.name, s.getWinRate() * 100, s.games, s.wins, s.draws, s.losses, s.points, s.tieBreaks
+                )
+            );
+        }
+        if (TurnProfiler.ENABLED) {
+            System.out.print(tournament.computeProfile(results).dump());
+        }
+        List<String> runaways = InProcessAgent.getRunawayThreads();
+        if (!runaways.isEmpty()) {
+            System.err.println(runaways.size() + " bot threads still run after their game: " + runaways);
+        }
+    }
+}
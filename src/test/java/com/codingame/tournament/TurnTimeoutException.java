@@ -0,0 +1,14 @@
+package com.codingame.tournament;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a bot has not printed all its lines before the end of its time for the turn.
+ */
+@SuppressWarnings("serial")
+public class TurnTimeoutException extends IOException {
+
+    public TurnTimeoutException(int linesReceived, int linesExpected, long timeoutMillis) {
+        super("Received " + linesReceived + " of " + linesExpected + " lines in " + timeoutMillis + " ms");
+    }
+}
@@ -0,0 +1,104 @@
+package com.codingame.view;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.codingame.gameengine.core.AbstractMultiplayerPlayer;
+import com.codingame.gameengine.core.AbstractPlayer;
+import com.codingame.gameengine.core.GameManager;
+import com.codingame.gameengine.core.MultiplayerGameManager;
+import com.codingame.view.FrameViewData.EntityData;
+
+/**
+ * Binary frames of the {@link ViewModule} for the headless checks of <code>com.codingame.game</code>, which build frames without a game
+ * manager: encodes them, and compares decoded frames field by field.
+ */
+public class ViewFrames {
+
+    private final ViewModule viewModule;
+
+    @SuppressWarnings("unchecked")
+    public ViewFrames() {
+        // Only used to register the module, as Guice would
+        GameManager<?> gameManager = new MultiplayerGameManager<AbstractMultiplayerPlayer>();
+        viewModule = new ViewModule((GameManager<AbstractPlayer>) gameManager);
+    }
+
+    public String serialize(FrameViewData data) {
+        return viewModule.serialize(data);
+    }
+
+    /**
+     * @param expected
+     *            fields of the expected frame, see {@link #describe(FrameViewData)}
+     * @return the fields that differ, with both values, or an empty list
+     */
+    public static List<String> differences(Map<String, String> expected, FrameViewData actual) {
+        Map<String, String> actualFields = describe(actual);
+        List<String> differences = new ArrayList<>();
+        for (Map.Entry<String, String> field : expected.entrySet()) {
+            String value = actualFields.get(field.getKey());
+            if (!field.getValue().equals(value)) {
+                differences.add(field.getKey() + ": expected " + field.getValue() + ", got " + value);
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Describes a frame while its lists are still those of the turn, as the engine reuses them. Maps are described in order of ids,
+     * entities by id and type, other lists in the order they were sent.
+     *
+     * @return the description of each field, by name
+     */
+    public static Map<String, String> describe(FrameViewData data) {
+        Map<String, String> fields = new TreeMap<>();
+        fields.put("keyframe", String.valueOf(data.keyframe));
+        Map<Integer, String> positions = new TreeMap<>();
+        data.positions.forEach((id, position) -> positions.put(id, describe(position)));
+        fields.put("positions", positions.toString());
+        fields.put("removed", data.removed.toString());
+        fields.put("messages", new TreeMap<>(data.messages).toString());
+        fields.put("controlled", data.controlled.toString());
+        fields.put("pushed", data.pushed.toString());
+        fields.put("shielded", data.shielded.toString());
+        fields.put("mana", new TreeMap<>(data.mana).toString());
+        fields.put("baseHealth", new TreeMap<>(data.baseHealth).toString());
+        fields.put("mobHealth", new TreeMap<>(data.mobHealth).toString());
+        fields.put("spawns", describe(data.spawns, true));
+        // Entities hold the health of the last keyframe or spawn, the current one is in mobHealth
+        fields.put("entities", data.entities == null ? "none" : describe(data.entities, false));
+        StringBuilder attacks = new StringBuilder();
+        for (Attack attack : data.attacks) {
+            attacks.append(attack.hero).append(attack.mobs).append(' ');
+        }
+        fields.put("attacks", attacks.toString());
+        StringBuilder baseAttacks = new StringBuilder();
+        for (BaseAttack attack : data.baseAttacks) {
+            baseAttacks.append(attack.player).append(':').append(attack.mob).append(' ');
+        }
+        fields.put("baseAttacks", baseAttacks.toString());
+        StringBuilder spellUses = new StringBuilder();
+        for (SpellUse use : data.spellUses) {
+            spellUses.append(use.hero).append(' ').append(use.spell).append(' ').append(use.target).append(' ')
+                .append(describe(use.destination)).append(' ');
+        }
+        fields.put("spellUses", spellUses.toString());
+        return fields;
+    }
+
+    private static String describe(Coord coord) {
+        // Sent as 0 0, see ViewModule
+        return coord == null ? "0 0" : coord.x + " " + coord.y;
+    }
+
+    private static String describe(List<EntityData> entities, boolean withHealth) {
+        Map<Integer, String> byId = new TreeMap<>();
+        for (EntityData e : entities) {
+            byId.put(e.id, withHealth ? e.type + " " + e.health : String.valueOf(e.type));
+        }
+        return byId.toString();
+    }
+}
@@ -0,0 +1,153 @@
+"""Trainer side of SharedMemoryBridge: steps batches of games through a memory-mapped file, without any text.
+
+Usage: python3 shared_memory_client.py <file> [steps]
+
+Start the bridge first, for instance on a memory file system:
+
+    java -cp <classpath> com.codingame.game.SharedMemoryBridge /dev/shm/spider 3 2 64 32
+
+then map the same file with a Bridge. Its arrays are memoryviews over the file, which numpy wraps without copying through
+numpy.frombuffer(view, dtype). Run as a script, it plays random actions on every slot and prints the games played per second.
+
+The bridge fences its side: it reads the actions only after it sees a new request sequence, and writes the response sequence only
+after the outputs. This side must write the actions and command before the request sequence, with a single aligned 8-byte store, and
+read the outputs only once the response sequence matches. CPython emits no fence, which is enough on x86-64 as it keeps stores in
+order; on a weaker memory model such as ARM, fence before the sequence store.
+"""
+import mmap
+import os
+import random
+import struct
+import sys
+import time
+
+MAGIC = 0x52445053
+VERSION = 1
+READY = 1
+CLOSED = 2
+COMMAND_STEP = 0
+COMMAND_RESET = 1
+
+HEADER = struct.Struct('<11i')
+CLOSE_REQUEST = 40
+REQUEST_SEQUENCE = 0
+COMMAND = 8
+RESPONSE_SEQUENCE = 64
+SLOT_ARRAYS = 128
+
+PLAYER_COUNT = 2
+ACTION_SIZE = 4
+WAIT, MOVE, WIND, SHIELD, CONTROL = range(5)
+
+
+class Slot:
+    """A batch of games, with views over its arrays in the file."""
+
+    def __init__(self, buffer, offset, envs, heroes, observation_size, entity_slots):
+        self.buffer = buffer
+        self.offset = offset
+        view = memoryview(buffer)
+        self.sequences = view[offset:offset + SLOT_ARRAYS].cast('q')
+        self.sequence = self.sequences[REQUEST_SEQUENCE // 8]
+
+        position = offset + SLOT_ARRAYS
+
+        def array(length, fmt):
+            nonlocal position
+            part = view[position:position + 4 * length].cast(fmt)
+            position += 4 * length
+            return part
+
+        self.actions = array(envs * PLAYER_COUNT * heroes * ACTION_SIZE, 'i')
+        self.observations = array(envs * PLAYER_COUNT * observation_size, 'f')
+        self.entity_ids = array(envs * PLAYER_COUNT * entity_slots, 'i')
+        self.rewards = array(envs * PLAYER_COUNT, 'f')
+        self.dones = array(envs, 'i')
+        self.winners = array(envs, 'i')
+
+    def request(self, command=COMMAND_STEP):
+        """Hands the actions to the bridge, which steps the games, or resets them, without waiting for it."""
+        struct.pack_into('<i', self.buffer, self.offset + COMMAND, command)
+        self.sequence += 1
+        # Written last: the bridge reads the actions once it sees the new sequence
+        self.sequences[REQUEST_SEQUENCE // 8] = self.sequence
+
+    def ready(self):
+        return self.sequences[RESPONSE_SEQUENCE // 8] == self.sequence
+
+    def wait(self, spins=1000):
+        """Waits for the bridge to write the outputs of the last request."""
+        idle = 0
+        while not self.ready():
+            idle += 1
+            if idle > spins:
+                time.sleep(0.00005)
+
+    def step(self, command=COMMAND_STEP):
+        self.request(command)
+        self.wait()
+
+
+class Bridge:
+
+    def __init__(self, path, timeout=30):
+        deadline = time.time() + timeout
+        while True:
+            if os.path.exists(path) and os.path.getsize(path) >= HEADER.size:
+                with open(path, 'r+b') as file:
+                    self.buffer = mmap.mmap(file.fileno(), 0)
+                header = HEADER.unpack_from(self.buffer, 0)
+                if header[0] == MAGIC and header[2] == READY:
+                    break
+                self.buffer.close()
+            if time.time() > deadline:
+                raise TimeoutError('No bridge ready on ' + path)
+            time.sleep(0.05)
+        (_, version, _, self.slot_count, self.envs_per_slot, self.heroes_per_player, self.observation_size,
+         self.entity_slots, slot_size, slots_offset, _) = header
+        if version != VERSION:
+            raise ValueError('Bridge version %d, expected %d' % (version, VERSION))
+        self.slots = [Slot(self.buffer, slots_offset + i * slot_size, self.envs_per_slot, self.heroes_per_player,
+                           self.observation_size, self.entity_slots) for i in range(self.slot_count)]
+
+    def close(self):
+        """Stops the bridge."""
+        struct.pack_into('<i', self.buffer, CLOSE_REQUEST, 1)
+
+
+def random_actions(slot, rng, width=17630, height=9000):
+    actions = slot.actions
+    for i in range(0, len(actions), ACTION_SIZE):
+        actions[i] = MOVE if rng.random() < 0.9 else WAIT
+        actions[i + 1] = rng.randrange(width)
+        actions[i + 2] = rng.randrange(height)
+        actions[i + 3] = -1
+
+
+def main():
+    bridge = Bridge(sys.argv[1])
+    steps = int(sys.argv[2]) if len(sys.argv) > 2 else 1000
+    rng = random.Random(0)
+    games = 0
+    start = time.time()
+    for slot in bridge.slots:
+        random_actions(slot, rng)
+        slot.request()
+    for _ in range(steps - 1):
+        # Actions of a slot are drawn while the bridge steps the others
+        for slot in bridge.slots:
+            slot.wait()
+            games += sum(slot.dones)
+            random_actions(slot, rng)
+            slot.request()
+    for slot in bridge.slots:
+        slot.wait()
+        games += sum(slot.dones)
+    elapsed = time.time() - start
+    bridge.close()
+    print('%d steps of %d games in %.1f s, %d games over, %.0f steps per second' % (
+        steps * bridge.slot_count, bridge.envs_per_slot, elapsed, games, steps * bridge.slot_count / elapsed))
+
+
+if __name__ == '__main__':
+    main()
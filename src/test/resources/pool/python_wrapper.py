@@ -0,0 +1,88 @@
+"""Plays several games with a single-file Python bot in the same interpreter, for the process pool of the tournament.
+
+Usage: python3 python_wrapper.py <bot.py>
+
+Each game starts with a NEW_GAME line, answered with READY once the bot is done with the previous game. The bot then runs from the top
+of its file and reads its input as usual, until the next NEW_GAME line ends it. Its globals start over every game, while the modules it
+imports stay loaded.
+
+A bot that raises, exits or returns before the end of its game makes the wrapper exit too, as the bot's own process would, so that the
+game sees it fail instead of waiting for its output.
+"""
+import os
+import runpy
+import sys
+import traceback
+
+NEW_GAME = 'NEW_GAME'
+READY = 'READY'
+
+
+class GameInput:
+    """Input of a single game: the lines of the real input up to the next NEW_GAME line."""
+
+    def __init__(self, stream):
+        self.stream = stream
+        self.next_game = False
+        self.over = False
+
+    def readline(self, size=-1):
+        if self.over:
+            return ''
+        line = self.stream.readline()
+        if line == '' or line.rstrip('\r\n') == NEW_GAME:
+            self.next_game = line != ''
+            self.over = True
+            return ''
+        return line
+
+    def __iter__(self):
+        return self
+
+    def __next__(self):
+        line = self.readline()
+        if line == '':
+            raise StopIteration
+        return line
+
+
+def main():
+    script = os.path.abspath(sys.argv[1])
+    sys.path.insert(0, os.path.dirname(script))
+    # Bots print without flushing, as the platform runs them unbuffered
+    sys.stdout.reconfigure(line_buffering=True)
+    stdin = sys.stdin
+
+    # Skip anything before the first game
+    while True:
+        line = stdin.readline()
+        if line == '':
+            return
+        if line.rstrip('\r\n') == NEW_GAME:
+            break
+
+    while True:
+        print(READY, flush=True)
+        game_input = GameInput(stdin)
+        sys.stdin = game_input
+        sys.argv = [script]
+        try:
+            runpy.run_path(script, run_name='__main__')
+        except (EOFError, SystemExit):
+            # Normal once the next NEW_GAME line has ended the input, checked below
+            pass
+        except Exception:
+            traceback.print_exc()
+            sys.exit(1)
+        finally:
+            sys.stdin = stdin
+            sys.stdout.flush()
+        if not game_input.over:
+            # The bot stopped in the middle of its game
+            sys.exit(1)
+        if not game_input.next_game:
+            return
+
+
+if __name__ == '__main__':
+    main()